@@ -0,0 +1,191 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package bench;
+
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.nio.*;
+import java.nio.file.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+/**
+JMH benchmarks of each phase of a lint run over the lexer and parser
+grammar pairs in the testdata directory.  Each phase is measured on its
+own, with the output of the preceding phases prepared once per trial.
+
+JMH will not generate benchmarks in the default package, and classes in
+the default package cannot be imported, so AntlrLint and the classes it
+uses are reached through method handles.
+
+Run with <code>make bench</code> from the project directory, which uses
+the GC profiler and writes the results as JSON to the bench directory.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class AntlrLintBenchmark {
+
+	private static final MethodHandle MAP;
+	private static final MethodHandle FROM_BUFFER;
+	private static final MethodHandle NEW_LEXER;
+	private static final MethodHandle NEW_LOADED_GRAMMAR;
+	private static final MethodHandle NEW_GRAMMAR_LISTENER;
+	private static final MethodHandle PARSE_GRAMMAR_SPEC;
+	private static final MethodHandle MERGE;
+	private static final MethodHandle NEW_GRAMMAR_SET;
+	private static final MethodHandle NEW_CHECK_CONTEXT;
+	private static final MethodHandle BUILT_IN_CHECKS;
+	private static final MethodHandle RUN_CHECKS;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Class<?> linter = Class.forName("Linter");
+			Class<?> loadedGrammar = Class.forName("LoadedGrammar");
+			Class<?> grammarListener = Class.forName("GrammarListener");
+			Class<?> grammarSet = Class.forName("GrammarSet");
+			Class<?> checkContext = Class.forName("CheckContext");
+			Class<?> checkEngine = Class.forName("CheckEngine");
+
+			Class<?> mappedCharStream = Class.forName("MappedCharStream");
+			MAP = lookup.findStatic(mappedCharStream, "map"
+				, MethodType.methodType(ByteBuffer.class, Path.class));
+			FROM_BUFFER = lookup.findStatic(mappedCharStream, "fromBuffer"
+				, MethodType.methodType(CharStream.class, ByteBuffer.class, String.class));
+			NEW_LEXER = lookup.findConstructor(Class.forName("ANTLRv4Lexer")
+				, MethodType.methodType(void.class, CharStream.class));
+			NEW_LOADED_GRAMMAR = lookup.findConstructor(loadedGrammar
+				, MethodType.methodType(void.class, String.class));
+			NEW_GRAMMAR_LISTENER = lookup.findConstructor(grammarListener
+				, MethodType.methodType(void.class));
+			PARSE_GRAMMAR_SPEC = lookup.findStatic(linter, "parseGrammarSpec"
+				, MethodType.methodType(ParseTree.class, CommonTokenStream.class, loadedGrammar));
+			MERGE = lookup.findVirtual(grammarListener, "merge"
+				, MethodType.methodType(void.class, grammarListener));
+			NEW_GRAMMAR_SET = lookup.findConstructor(grammarSet
+				, MethodType.methodType(void.class, String.class, String.class, List.class));
+			NEW_CHECK_CONTEXT = lookup.findConstructor(checkContext
+				, MethodType.methodType(void.class, grammarSet, grammarListener, Boolean.class));
+			BUILT_IN_CHECKS = lookup.findStatic(checkEngine, "builtIn"
+				, MethodType.methodType(checkEngine));
+			RUN_CHECKS = lookup.findVirtual(checkEngine, "run"
+				, MethodType.methodType(void.class, checkContext));
+		} catch(ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	@Param({"Cobol", "CICSz", "DB2zSQL", "JCL", "DSNTSO"})
+	public String grammar;
+
+	private String[] fileNames = null;
+	private ByteBuffer[] contents = null;
+	private List<List<Token>> tokens = null;
+	private ParseTree[] trees = null;
+	private Object listener = null;
+	private Object grammarSet = null;
+	private Object checkEngine = null;
+
+	@Setup(Level.Trial)
+	public void setup() throws Throwable {
+		this.fileNames = new String[] {
+			"testdata/" + this.grammar + "Lexer.g4"
+			, "testdata/" + this.grammar + "Parser.g4"
+			};
+		this.contents = new ByteBuffer[this.fileNames.length];
+		this.tokens = new ArrayList<>();
+		this.trees = new ParseTree[this.fileNames.length];
+		this.listener = NEW_GRAMMAR_LISTENER.invoke();
+
+		for (int i = 0; i < this.fileNames.length; i++) {
+			this.contents[i] = (ByteBuffer)MAP.invoke(Paths.get(this.fileNames[i]));
+			CommonTokenStream cts = this.lex(i);
+			this.tokens.add(cts.getTokens());
+			this.trees[i] = (ParseTree)PARSE_GRAMMAR_SPEC.invoke(cts, NEW_LOADED_GRAMMAR.invoke(this.fileNames[i]));
+			Object fileListener = NEW_GRAMMAR_LISTENER.invoke();
+			new ParseTreeWalker().walk((ParseTreeListener)fileListener, this.trees[i]);
+			MERGE.invoke(this.listener, fileListener);
+		}
+		this.grammarSet = NEW_GRAMMAR_SET.invoke(this.fileNames[0], this.fileNames[1], List.of("testdata"));
+		this.checkEngine = BUILT_IN_CHECKS.invoke();
+	}
+
+	/**
+	Lex the mapped content of a grammar file, through a MappedCharStream as 
+	the Linter does.
+	*/
+	private CommonTokenStream lex(int i) throws Throwable {
+		CharStream cs = (CharStream)FROM_BUFFER.invoke(this.contents[i], this.fileNames[i]);
+		Lexer lexer = (Lexer)NEW_LEXER.invoke(cs);
+		CommonTokenStream cts = new CommonTokenStream(lexer);
+		cts.fill();
+		return cts;
+	}
+
+	/**
+	ANTLRv4Lexer tokenization of both grammar files.
+	*/
+	@Benchmark
+	public void lex(Blackhole bh) throws Throwable {
+		for (int i = 0; i < this.fileNames.length; i++) {
+			bh.consume(this.lex(i).size());
+		}
+	}
+
+	/**
+	ANTLRv4Parser.grammarSpec, SLL with LL fallback as AntlrLint does it, of the
+	already lexed tokens of both grammar files.
+	*/
+	@Benchmark
+	public void parse(Blackhole bh) throws Throwable {
+		for (int i = 0; i < this.fileNames.length; i++) {
+			CommonTokenStream cts = new CommonTokenStream(new ListTokenSource(this.tokens.get(i)));
+			bh.consume(PARSE_GRAMMAR_SPEC.invoke(cts, NEW_LOADED_GRAMMAR.invoke(this.fileNames[i])));
+		}
+	}
+
+	/**
+	GrammarListener walk of the already built parse trees of both grammar files.
+	*/
+	@Benchmark
+	public void walk(Blackhole bh) throws Throwable {
+		ParseTreeWalker walker = new ParseTreeWalker();
+		for (int i = 0; i < this.fileNames.length; i++) {
+			Object fileListener = NEW_GRAMMAR_LISTENER.invoke();
+			walker.walk((ParseTreeListener)fileListener, this.trees[i]);
+			bh.consume(fileListener);
+		}
+	}
+
+	/**
+	The built in checks, unreferenced tokens, channels, tokensSpec tokens, 
+	and modeSpecs, run by the CheckEngine in a single pass.
+	*/
+	@Benchmark
+	public Object runChecks() throws Throwable {
+		Object context = NEW_CHECK_CONTEXT.invoke(this.grammarSet, this.listener, Boolean.FALSE);
+		RUN_CHECKS.invoke(this.checkEngine, context);
+		return context;
+	}
+
+}
@@ -16,9 +16,17 @@
 
 import java.util.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
 import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
 import org.antlr.v4.runtime.tree.*;
 import org.apache.commons.cli.*;
 
@@ -36,430 +44,1286 @@ point is to find potential cruft.
 */
 public class AntlrLint {
 
-	public static String lexerFileName = null;
-	public static String parserFileName = null;
-	public static String combinedFileName = null;
-	public static String pathToFile = null;
+	public static ArrayList<GrammarSet> grammarSets = new ArrayList<>();
+	public static ArrayList<String> searchPaths = new ArrayList<>();
 	public static Boolean verbose = false;
+	public static String cacheDirectory = ".antlrlint-cache";
+	public static Boolean useCache = true;
+	public static Boolean purgeCache = false;
+	public static Boolean watch = false;
+	public static String serveAddress = null;
+	public static Boolean stats = false;
+	public static String format = FindingWriter.TEXT;
+	public static String startRule = null;
+	public static String scanDirectory = null;
+	public static Integer parallelism = null;
+	public static String profileDirectory = null;
+	public static String ruleMetricsColumn = null;
+	public static String ruleMetricsFileName = null;
+	public static String baselineFileName = null;
+	public static Boolean updateBaseline = false;
+
+	/**
+	Everything which lints a grammar set, as opposed to reporting on it, is
+	done by the Linter, configured from the command line.
+	*/
+	private static Linter linter = new Linter();
+	private static FindingWriter findingWriter = null;
+	private static HashMap<String, TreeMap<String, Location>> runLexerRuleShapes = new HashMap<>();
+	private static TreeMap<Integer, List<ParserRuleMetrics>> runRuleMetrics = new TreeMap<>();
+	private static FindingBaseline baseline = null;
+	private static FindingBaseline runBaseline = null;
+	private static int newFindingCount = 0;
 	
 	public static void main(String[] args) throws Exception {
 
 		cli(args);
 
-		GrammarListener listener = new GrammarListener();
-		if (lexerFileName != null && parserFileName != null) {
-			lexAndParseGrammar(lexerFileName, listener);
-			lexAndParseGrammar(parserFileName, listener);
-		} else {
-			lexAndParseGrammar(combinedFileName, listener);
+		if (useCache || purgeCache) {
+			GrammarCache grammarCache = new GrammarCache(Paths.get(cacheDirectory));
+			if (purgeCache) {
+				try {
+					grammarCache.purge();
+				} catch(IOException e) {
+					System.err.println("Error purging cache directory " + cacheDirectory + " " + e);
+					System.exit(12);
+				}
+			}
+			if (useCache) {
+				linter.setGrammarCache(grammarCache);
+			}
+		}
+
+		try {
+			for (String s: linter.getCheckEngine().registerServices(AntlrLint.class.getClassLoader())) {
+				if (verbose) System.out.println("loaded check " + s);
+			}
+		} catch(ServiceConfigurationError e) {
+			System.err.println("Error loading checks " + e);
+			System.exit(12);
+		}
+
+		if (baselineFileName != null) {
+			Path baselinePath = Paths.get(baselineFileName);
+			if (Files.exists(baselinePath) && !updateBaseline) {
+				try {
+					baseline = FindingBaseline.read(baselinePath);
+				} catch(IOException e) {
+					System.err.println("Error reading baseline " + baselineFileName + " " + e);
+					System.exit(12);
+				}
+			} else {
+				runBaseline = new FindingBaseline();
+			}
 		}
 
 		/*
-		Each grammar file may contain an <code>import</code> statement, which
-		gives us another grammar file to process.
+		Unless linted in parallel the grammar sets are linted one after another
+		in this JVM, so the DFA ANTLRv4Lexer and ANTLRv4Parser build up as they
+		go, which are shared by all instances, are already warm for each set
+		after the first.  Either way the files of each set are loaded on the
+		executor.
 		*/
-		ListIterator<String> iterator = listener.getDelegateGrammars().listIterator();
-		while (iterator.hasNext()) {
-			StringBuffer grammarFile = new StringBuffer(pathToFile).append(iterator.next()).append(".g4");
-			lexAndParseGrammar(grammarFile.toString(), listener);
+		ExecutorService executor = 
+			Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		linter.setExecutor(executor);
+		if (parallelism == null) {
+			parallelism = scanDirectory == null ? 1 : Runtime.getRuntime().availableProcessors();
 		}
-	
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		/*
+		With a machine readable format standard output holds only the findings,
+		everything else printed there going to standard error instead.
+		*/
+		if (serveAddress == null && !format.equals(FindingWriter.TEXT)) {
+			findingWriter = FindingWriter.of(format, new PrintStream(
+				new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false, StandardCharsets.UTF_8));
+			System.setOut(System.err);
+			findingWriter.begin();
+		}
+
+		if (scanDirectory != null && !scanGrammarSets(scanDirectory, pool)) {
+			System.exit(12);
+		}
+
+		if (serveAddress != null) {
+			serve(serveAddress);
+			pool.shutdown();
+			executor.shutdown();
+			return;
+		}
+
+		Boolean allLoaded = true;
+		if (parallelism > 1 && grammarSets.size() > 1) {
+			allLoaded = lintInParallel(pool, executor);
+		} else {
+			for (int i = 0; i < grammarSets.size(); i++) {
+				allLoaded &= lintGrammarSet(i, executor);
+			}
+		}
+		if (linter.getDuplicateRules() && grammarSets.size() > 1) {
+			reportDuplicatesAcrossGrammars();
+		}
+		if (ruleMetricsFileName != null && !writeRuleMetrics()) {
+			System.exit(12);
+		}
+		if (runBaseline != null && allLoaded) {
+			try {
+				runBaseline.write(Paths.get(baselineFileName));
+				System.out.println("wrote baseline " + baselineFileName);
+			} catch(IOException e) {
+				System.err.println("Error writing baseline " + baselineFileName + " " + e);
+				System.exit(12);
+			}
+		}
+
+		if (findingWriter != null) {
+			findingWriter.end();
+		}
+		pool.shutdown();
+		executor.shutdown();
+		if (!allLoaded) {
+			System.exit(12);
+		}
+		if (newFindingCount > 0) {
+			System.out.println(newFindingCount + " findings not in baseline " + baselineFileName);
+			System.exit(8);
+		}
+		return;
+	}
+
+	/**
+	Lint the grammar set at index i of grammarSets, returning false if any of
+	its grammar files could not be loaded.
+	*/
+	private static Boolean lintGrammarSet(int i, ExecutorService executor) throws Exception {
+		GrammarSet grammarSet = grammarSets.get(i);
+		if (grammarSets.size() > 1) {
+			System.out.println("linting grammar set " + (i + 1) + " of " + grammarSets.size() + " " + grammarSet);
+		}
+		long start = System.nanoTime();
+
+		HashMap<String, LoadedGrammar> loadedGrammars = new HashMap<>();
+		GrammarListener listener = linter.assembleGrammars(grammarSet, loadedGrammars, System.out, System.err);
+		if (listener == null) {
+			return false;
+		}
+
+		report(listener, grammarSet);
+		if (linter.getDuplicateRules() && grammarSets.size() > 1) {
+			collectLexerRuleShapes(listener);
+		}
+		if (ruleMetricsColumn != null || profileDirectory != null) {
+			GrammarProfiler profiler = loadParser(grammarSet, listener);
+			if (profiler != null && ruleMetricsColumn != null) {
+				measureParserRules(i, listener, profiler);
+			}
+			if (profiler != null && profileDirectory != null) {
+				profileDecisions(grammarSet, listener, profiler, executor);
+			}
+		}
+		if (verbose && grammarSets.size() > 1) System.out.println("linted " + grammarSet + " in " + ((System.nanoTime() - start) / 1000000) + " ms");
+
+		if (watch) {
+			watchGrammars(grammarSet, loadedGrammars, listener);
+		}
+		return true;
+	}
+
+	/**
+	Lint the grammar sets as tasks on the pool, at most as many at once as
+	its parallelism, their files still being loaded on the executor.  What
+	each set prints is collected as it runs and printed once the sets before
+	it have been, so the output is the same as linting them one after another.
+	Findings written in a machine readable format are written as they are
+	decided, and so may be in any order.  Returns false if any grammar file
+	could not be loaded.
+	*/
+	private static Boolean lintInParallel(ForkJoinPool pool, ExecutorService executor) throws Exception {
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		ThreadOutputStream threadOut = new ThreadOutputStream(stdout);
+		ThreadOutputStream threadErr = new ThreadOutputStream(stderr);
+		System.setOut(new PrintStream(threadOut, true));
+		System.setErr(new PrintStream(threadErr, true));
+
+		ArrayList<ByteArrayOutputStream> outputs = new ArrayList<>();
+		ArrayList<Future<Boolean>> futures = new ArrayList<>();
+		for (int i = 0; i < grammarSets.size(); i++) {
+			int index = i;
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			outputs.add(output);
+			futures.add(pool.submit(() -> {
+				threadOut.setStream(output);
+				threadErr.setStream(output);
+				try {
+					return lintGrammarSet(index, executor);
+				} finally {
+					System.out.flush();
+					System.err.flush();
+					threadOut.setStream(null);
+					threadErr.setStream(null);
+				}
+			}));
+		}
+
+		Boolean allLoaded = true;
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					allLoaded &= futures.get(i).get();
+				} catch(ExecutionException e) {
+					System.err.println("Error linting " + grammarSets.get(i) + " " + e.getCause());
+					allLoaded = false;
+				}
+				outputs.get(i).writeTo(stdout);
+				stdout.flush();
+			}
+		} finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+		}
+		return allLoaded;
+	}
+
+	/**
+	Add the grammar sets found in the indicated directory tree, classifying
+	its grammar files on the pool.  Returns false if the directory could not
+	be read.
+	*/
+	private static Boolean scanGrammarSets(String directory, ForkJoinPool pool) throws InterruptedException {
+		GrammarDirectory grammarDirectory = new GrammarDirectory(Paths.get(directory));
+		try {
+			grammarDirectory.scan(pool);
+		} catch(IOException e) {
+			System.err.println("Error scanning directory " + directory + " " + e);
+			return false;
+		}
+
+		int lexers = 0;
+		int parsers = 0;
+		int combined = 0;
+		for (GrammarDecl decl: grammarDirectory.getGrammarDecls()) {
+			if (verbose) System.out.println("found " + decl);
+			switch(decl.getType()) {
+				case GrammarDecl.LEXER: lexers++; break;
+				case GrammarDecl.PARSER: parsers++; break;
+				default: combined++; break;
+			}
+		}
+		ArrayList<GrammarSet> found = grammarDirectory.grammarSets(searchPaths, startRule);
+		System.out.println("scanned " + directory + " found " + lexers + " lexer, " + parsers + " parser, and " 
+			+ combined + " combined grammars in " + found.size() + " grammar sets");
+		grammarSets.addAll(found);
+		return true;
+	}
+
+	/**
+	Print what was found, if anything, for each of the searches, followed by
+	the time each took if -stats was specified.  The checks registered with
+	the CheckEngine run first, in a single pass over what was collected, and
+	what they found is printed in the sections for the built in checks, each
+	as soon as the checks of its kind finish, then any found by other checks.
+
+	With a machine readable format each finding is instead written by the
+	FindingWriter as soon as the search decides it, along with where the
+	thing it is about is defined.
+	*/
+	@SuppressWarnings("try")
+	private static void report(GrammarListener listener, GrammarSet grammarSet) {
+		LintStats searchStats = new LintStats(grammarSet.toString());
+
 		System.out.println(
 			"searching for " 
 			+ listener.getLexerTokens().size()
 			+ " tokens in " 
-			+ listener.getLexerRules().size()
+			+ listener.getLexerRuleNames().size()
 			+ " lexer rules and "
-			+ listener.getParserRules().size()
+			+ listener.getParserRuleNames().size()
 			+ " parser rules"
 			);
 
-		ArrayList<String> fallenLeafTokens = 
-			searchForFallenLeafTokens(
-				listener.getLexerRules()
-				, listener.getParserRules()
-				, listener.getLexerTokens());
+		CheckContext checked = new CheckContext(grammarSet, listener, verbose);
+		String baselineKey = FindingBaseline.key(grammarSet);
+		ArrayList<Finding> baselined = new ArrayList<>();
+		try (LintStats.Phase p = searchStats.begin("runChecks")) {
+			linter.getCheckEngine().run(checked, kind -> reportChecked(kind, checked, baselineKey, baselined));
+		}
 
-		if (fallenLeafTokens.size() > 0) {
-			System.out.println("Lexer Tokens with no rule referencing them...");
-			for (String s: fallenLeafTokens) {
-				System.out.println(s);
+		ArrayList<String> otherFindings = new ArrayList<>();
+		for (Finding f: Linter.otherFindings(checked)) {
+			otherFindings.add(f.getMessage());
+			if (findingWriter != null) {
+				findingWriter.write(f, checked.getLocation(f));
 			}
-		} else {
-			System.out.println("All Lexer Tokens are referenced in at least one rule");
 		}
-		
-		if (listener.getLexerChannels().size() > 0) {
-			System.out.println(
-				"searching for " 
-				+ listener.getLexerChannels().size()
-				+ " channels in " 
-				+ listener.getLexerRules().size()
-				+ " lexer rules"
-				);
-			ArrayList<String> fallenLeafChannels = 
-				searchForFallenLeafChannels(
-					listener.getLexerRules()
-					, listener.getLexerChannels());
-			if (fallenLeafChannels.size() > 0) {
-				System.out.println("Lexer Channels with no rule referencing them...");
-				for (String s: fallenLeafChannels) {
-					System.out.println(s);
-				}
+		if (findingWriter == null && !otherFindings.isEmpty()) {
+			printFallenLeaves(otherFindings, "Found by other checks...", "");
+		}
+
+		if (baseline != null || runBaseline != null) {
+			compareWithBaseline(baselineKey, baselined);
+		}
+
+		if (linter.getUnreachable() && listener.getParserRuleNames().size() > 0) {
+			ArrayList<String> startRules = Linter.startRules(grammarSet, listener);
+			if (startRules.isEmpty()) {
+				System.out.println("start rule " + String.join(",", grammarSet.getStartRules()) + " is not a parser rule");
 			} else {
-				System.out.println("All Lexer Channels are referenced in at least one rule");
+				System.out.println(
+					"searching for parser rules unreachable from "
+					+ String.join(",", startRules)
+					+ " in "
+					+ listener.getParserRuleNames().size()
+					+ " parser rules"
+					);
+				ArrayList<String> unreachableParserRules = new ArrayList<>();
+				try (LintStats.Phase p = searchStats.begin("searchForUnreachableParserRules")) {
+					linter.searchForUnreachableParserRules(listener.getReferenceIndex(), listener.getParserRuleNames(), startRules
+						, found(Finding.UNREACHABLE_PARSER_RULE, listener, unreachableParserRules), System.out);
+				}
+				if (findingWriter == null) {
+					printFallenLeaves(unreachableParserRules
+						, "Parser Rules not reachable from the start rule..."
+						, "All Parser Rules are reachable from the start rule");
+				}
 			}
 		}
 
-		if (listener.getLexerTokensSpecTokens().size() > 0) {
+		if (linter.getUnreachable() && listener.getLexerFragmentNames().size() > 0) {
 			System.out.println(
 				"searching for " 
-				+ listener.getLexerTokensSpecTokens().size()
-				+ " tokensSpec tokens in " 
-				+ listener.getLexerRules().size()
+				+ listener.getLexerFragmentNames().size()
+				+ " fragments reachable from referenced tokens in " 
+				+ listener.getLexerRuleNames().size()
 				+ " lexer rules"
 				);
-			ArrayList<String> fallenLeafTokensSpecTokens = 
-				searchForFallenLeafTokensSpecTokens(
-					listener.getLexerRules()
-					, listener.getLexerTokensSpecTokens());
-			if (fallenLeafTokensSpecTokens.size() > 0) {
-				System.out.println("Lexer tokensSpec Tokens with no ->type() command referencing them...");
-				for (String s: fallenLeafTokensSpecTokens) {
-					System.out.println(s);
-				}
-			} else {
-				System.out.println("All Lexer tokensSpec Tokens are referenced in at least one ->type() command");
+			ArrayList<String> unreachableFragments = new ArrayList<>();
+			try (LintStats.Phase p = searchStats.begin("searchForUnreachableFragments")) {
+				linter.searchForUnreachableFragments(listener.getReferenceIndex(), listener.getLexerRuleNames()
+					, listener.getLexerFragmentNames(), checked.getNames(Finding.TOKEN)
+					, found(Finding.UNREACHABLE_FRAGMENT, listener, unreachableFragments), System.out);
+			}
+			if (findingWriter == null) {
+				printFallenLeaves(unreachableFragments
+					, "Lexer fragments referenced only from unreferenced or unreachable rules..."
+					, "All referenced Lexer fragments are reachable from a referenced Lexer Token");
 			}
 		}
 
-		if (listener.getModeSpecs().size() > 0) {
+		if (linter.getUnreachable() && listener.getModeSpecs().size() > 0) {
 			System.out.println(
 				"searching for " 
 				+ listener.getModeSpecs().size()
-				+ " modeSpecs in " 
-				+ listener.getLexerRules().size()
+				+ " modeSpecs reachable from " 
+				+ ReferenceIndex.DEFAULT_MODE
+				);
+			ArrayList<String> unreachableModeSpecs = new ArrayList<>();
+			try (LintStats.Phase p = searchStats.begin("searchForUnreachableModeSpecs")) {
+				linter.searchForUnreachableModeSpecs(listener.getReferenceIndex(), listener.getModeSpecs()
+					, found(Finding.UNREACHABLE_MODE_SPEC, listener, unreachableModeSpecs), System.out);
+			}
+			if (findingWriter == null) {
+				printFallenLeaves(unreachableModeSpecs
+					, "Lexer modeSpecs entered only from unreachable modes..."
+					, "All referenced modeSpecs are reachable from " + ReferenceIndex.DEFAULT_MODE);
+			}
+		}
+
+		if (linter.getDuplicateRules() && listener.getLexerRuleShapes().size() > 0) {
+			System.out.println(
+				"searching for lexer rules with the same body in " 
+				+ listener.getLexerRuleShapes().size()
 				+ " lexer rules"
 				);
-			ArrayList<String> fallenLeafModeSpecs = 
-				searchForFallenLeafModeSpecs(
-					listener.getLexerRules()
-					, listener.getModeSpecs());
-			if (fallenLeafModeSpecs.size() > 0) {
-				System.out.println("Lexer modeSpecs with no ->[push|pop]mode() command referencing them...");
-				for (String s: fallenLeafModeSpecs) {
-					System.out.println(s);
+			ArrayList<String> duplicateLexerRules = new ArrayList<>();
+			try (LintStats.Phase p = searchStats.begin("searchForDuplicateLexerRules")) {
+				linter.searchForDuplicateLexerRules(listener.getLexerRuleShapes()
+					, foundDuplicates(listener, duplicateLexerRules), System.out);
+			}
+			if (findingWriter == null) {
+				printFallenLeaves(duplicateLexerRules
+					, "Lexer Rules with the same body as another in the same mode..."
+					, "No two Lexer Rules in the same mode have the same body");
+			}
+		}
+
+		if (linter.getCostlyConstructs() && listener.getLexerRuleCosts().size() > 0) {
+			LexerCostModel model = new LexerCostModel(listener.getLexerRuleCosts(), listener.getLexerRuleShapes());
+			long atnStates = 0;
+			long dfaStates = 0;
+			for (String mode: model.getModeNames()) {
+				atnStates += model.getATNStates(mode);
+				dfaStates += model.getDFAStates(mode);
+				if (verbose) System.out.println(
+					"estimated " + model.getATNStates(mode) + " ATN states and " + model.getDFAStates(mode) 
+					+ " DFA states for mode " + mode + " with " + model.getKeywords(mode) + " keywords");
+			}
+			System.out.println(
+				"searching for costly constructs in "
+				+ model.getCosts().size()
+				+ " lexer rules, an estimated "
+				+ atnStates
+				+ " ATN states and "
+				+ dfaStates
+				+ " DFA states"
+				);
+			ArrayList<String> costly = new ArrayList<>();
+			try (LintStats.Phase p = searchStats.begin("searchForCostlyLexerConstructs")) {
+				linter.searchForCostlyLexerConstructs(model, foundCostly(listener, costly), System.out);
+			}
+			if (findingWriter == null) {
+				printFallenLeaves(costly
+					, "Costly lexer constructs by estimated cost..."
+					, "No costly lexer constructs found");
+			}
+		}
+
+		if (linter.getShadowedTokens()) {
+			String fileName = grammarSet.getGrammarFileNames().get(0);
+			TokenShadowing shadowing = null;
+			try (LintStats.Phase p = searchStats.begin("load ATN")) {
+				shadowing = new TokenShadowing(fileName, grammarSet.getSearchPaths());
+			}
+			if (shadowing.getErrors().isEmpty() && !shadowing.hasLexer()) {
+				System.out.println(fileName + " has no lexer rules, not searching for shadowed tokens");
+			} else if (shadowing.getErrors().isEmpty()) {
+				LinkedHashMap<String, String> probes = shadowing.probes();
+				System.out.println(
+					"searching for shadowed tokens among "
+					+ probes.size()
+					+ " tokens matching fixed text in "
+					+ fileName
+					);
+				ArrayList<String> shadowed = new ArrayList<>();
+				try (LintStats.Phase p = searchStats.begin("searchForShadowedTokens")) {
+					linter.searchForShadowedTokens(shadowing, probes, foundShadowed(shadowing, shadowed), System.out);
+				}
+				if (findingWriter == null) {
+					printFallenLeaves(shadowed
+						, "Lexer Tokens never produced, another rule matching the same text..."
+						, "All Lexer Tokens matching fixed text are produced");
 				}
 			} else {
-				System.out.println("All modeSpecs are referenced in at least one ->[push|pop]mode() command");
+				System.err.println("Error loading " + fileName + " with the ANTLR tool, not searching for shadowed tokens");
+				for (String s: shadowing.getErrors()) {
+					System.err.println(s);
+				}
 			}
 		}
 
-		return;
+		if (stats) {
+			searchStats.print(System.out);
+		}
 	}
 
 	/**
-	Search all <code>lexerRuleSpec</code>s and <code>parserRuleSpec</code>s for tokens
-	and return a list of those not found.  These are potential cruft.
+	Load the grammar set's parser grammar, and the lexer grammar providing 
+	its tokens, with the ANTLR tool, once for both measuring its rules and
+	profiling its decisions.  Returns null, having said why, if the set has
+	no parser rules or could not be loaded.
 	*/
-	private static ArrayList<String> searchForFallenLeafTokens(
-		ArrayList<ANTLRv4Parser.LexerRuleSpecContext> lexerRules
-		, ArrayList<ANTLRv4Parser.ParserRuleSpecContext> parserRules
-		, ArrayList<String> lexerTokens) {
-		
-		ArrayList<String> fallenLeafTokens = new ArrayList<>();
-		for (String s: lexerTokens) {
-			Boolean foundItInLexerRule = false;
-			Boolean foundItInParserRule = false;
-			if (verbose) System.out.println("searching for " + s);
-			lexerLoop:
-			for (ANTLRv4Parser.LexerRuleSpecContext lrsCtx: lexerRules) {
-				ANTLRv4Parser.LexerRuleBlockContext lrbCtx = lrsCtx.lexerRuleBlock();
-				ANTLRv4Parser.LexerAltListContext lalCtx = lrbCtx.lexerAltList();
-				foundItInLexerRule = searchLexerAltList(lalCtx, s, lrsCtx.TOKEN_REF().getSymbol().getText());
-				if (foundItInLexerRule) {
-					break lexerLoop;
-				}
+	@SuppressWarnings("try")
+	private static GrammarProfiler loadParser(GrammarSet grammarSet, GrammarListener listener) {
+		LintStats loadStats = new LintStats(grammarSet.toString());
+		String purpose = ruleMetricsColumn == null ? "profiling decisions" 
+			: profileDirectory == null ? "measuring parser rules" 
+			: "measuring parser rules or profiling decisions";
+		if (listener.getParserRuleNames().isEmpty()) {
+			System.out.println(grammarSet + " has no parser rules, not " + purpose);
+			return null;
+		}
+
+		GrammarProfiler profiler = null;
+		try (LintStats.Phase p = loadStats.begin("load ATN")) {
+			profiler = new GrammarProfiler(grammarSet);
+		}
+		if (profiler.getErrors().isEmpty() && !profiler.hasParser()) {
+			System.out.println(grammarSet + " has no parser rules, not " + purpose);
+			return null;
+		} else if (!profiler.getErrors().isEmpty()) {
+			System.err.println("Error loading " + grammarSet + " with the ANTLR tool, not " + purpose);
+			for (String s: profiler.getErrors()) {
+				System.err.println(s);
 			}
-			if (!foundItInLexerRule) {
-				parserLoop:
-				for (ANTLRv4Parser.ParserRuleSpecContext prsCtx: parserRules) {
-					ANTLRv4Parser.RuleBlockContext rbCtx = prsCtx.ruleBlock();
-					ANTLRv4Parser.RuleAltListContext ralCtx = rbCtx.ruleAltList();
-					for (ANTLRv4Parser.LabeledAltContext laCtx: ralCtx.labeledAlt()) {
-						ANTLRv4Parser.AlternativeContext altCtx = laCtx.alternative();
-						foundItInParserRule = searchParserAlternative(altCtx, s, prsCtx.RULE_REF().getSymbol().getText());
-						if (foundItInParserRule) {
-							break parserLoop;
-						}
-					}
-				}
-				if (!foundItInLexerRule && !foundItInParserRule) {
-					fallenLeafTokens.add(s);
-				}
+			return null;
+		}
+
+		if (stats) {
+			loadStats.print(System.out);
+		}
+		return profiler;
+	}
+
+	/**
+	Print the ATN metrics of each parser rule of the grammar set, sorted by 
+	ruleMetricsColumn, the first 20 unless verbose, and keep them to be 
+	written to ruleMetricsFileName once every set has been linted.
+	*/
+	@SuppressWarnings("try")
+	private static void measureParserRules(int i, GrammarListener listener, GrammarProfiler profiler) {
+		LintStats measureStats = new LintStats(profiler.getFileName());
+		ArrayList<ParserRuleMetrics> metrics = null;
+		try (LintStats.Phase p = measureStats.begin("measure parser rules")) {
+			metrics = ParserRuleMetrics.measure(profiler.getParserGrammar(), listener.getParserRuleNames()
+				, listener.getReferenceIndex().parserRuleGraph());
+			metrics.sort(ParserRuleMetrics.comparator(ruleMetricsColumn));
+		}
+
+		int states = 0;
+		int decisions = 0;
+		int nonLL1 = 0;
+		for (ParserRuleMetrics m: metrics) {
+			states += m.getStates();
+			decisions += m.getDecisions();
+			nonLL1 += m.getNonLL1Decisions();
+		}
+		System.out.println(
+			"measured "
+			+ metrics.size()
+			+ " parser rules of "
+			+ profiler.getFileName()
+			+ ", "
+			+ states
+			+ " ATN states, "
+			+ decisions
+			+ " decisions, "
+			+ nonLL1
+			+ " not LL(1)"
+			);
+		int shown = verbose ? metrics.size() : Math.min(20, metrics.size());
+		if (shown > 0) {
+			System.out.println("Parser rules by " + ruleMetricsColumn + "...");
+		}
+		for (ParserRuleMetrics m: metrics.subList(0, shown)) {
+			System.out.println(m);
+		}
+		if (shown < metrics.size()) {
+			System.out.println("... and " + (metrics.size() - shown) + " more parser rules, -verbose lists them all");
+		}
+
+		if (ruleMetricsFileName != null) {
+			synchronized (runRuleMetrics) {
+				runRuleMetrics.put(i, metrics);
 			}
 		}
-		
-		return fallenLeafTokens;
+		if (stats) {
+			measureStats.print(System.out);
+		}
 	}
 
 	/**
-	Search for channels which were specified in a <code>prequelConstruct</code> but are
-	never used in a <code>lexerCommand</code>.  Recursively checking for <code>lexerCommand</code>s 
-	in <code>lexerCommands</code> in <code>lexerAlt</code>s in <code>lexerAltList</code>s is
-	not necessary as a <code>lexerCommand</code> can only be specified once per <code>lexerRuleSpec</code>
-	as per the "Lexer Commands" section on page 283 of _The Definitive ANTLR 4 Reference_
-	ISBN 978-1-93435-699-9.
+	Write the metrics of the parser rules of every grammar set to 
+	ruleMetricsFileName as comma separated values, each line beginning with
+	the grammar set.  Returns false if the file could not be written.
 	*/
-	private static ArrayList<String> searchForFallenLeafChannels(
-		ArrayList<ANTLRv4Parser.LexerRuleSpecContext> lexerRules
-		, ArrayList<String> lexerChannels) {
-		
-		ArrayList<String> fallenLeafChannels = new ArrayList<>();
-		for (String s: lexerChannels) {
-			Boolean foundChannel = false;
-			if (verbose) System.out.println("searching for " + s );
-			lexerLoop:
-			for (ANTLRv4Parser.LexerRuleSpecContext lrsCtx: lexerRules) {
-				ANTLRv4Parser.LexerRuleBlockContext lrbCtx = lrsCtx.lexerRuleBlock();
-				ANTLRv4Parser.LexerAltListContext lalCtx = lrbCtx.lexerAltList();
-				for (ANTLRv4Parser.LexerAltContext laCtx: lalCtx.lexerAlt()) {
-					ANTLRv4Parser.LexerCommandsContext lcCtx = laCtx.lexerCommands();
-					if (lcCtx != null) {
-						for (ANTLRv4Parser.LexerCommandContext lexerCmdCtx: lcCtx.lexerCommand()) {
-							ANTLRv4Parser.LexerCommandNameContext lcnCtx = lexerCmdCtx.lexerCommandName();
-							if (lcnCtx.getText().equals("channel") && lexerCmdCtx.lexerCommandExpr() != null) {
-								if (lexerCmdCtx.lexerCommandExpr().getText().equals(s)) {
-									foundChannel = true;
-									if (verbose) System.out.println("\tfound in lexer rule " + lrsCtx.TOKEN_REF().getSymbol().getText());
-									break lexerLoop;
-								}
-							}
-						}
-					}
+	private static Boolean writeRuleMetrics() {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(ruleMetricsFileName), StandardCharsets.UTF_8))) {
+			out.println(ParserRuleMetrics.csvHeader("grammarSet"));
+			for (Map.Entry<Integer, List<ParserRuleMetrics>> entry: runRuleMetrics.entrySet()) {
+				String grammarSet = ParserRuleMetrics.csvField(grammarSets.get(entry.getKey()).toString());
+				for (ParserRuleMetrics m: entry.getValue()) {
+					out.println(grammarSet + "," + m.toCsv());
 				}
 			}
-			if (!foundChannel) {
-				fallenLeafChannels.add(s);
+			if (out.checkError()) {
+				throw new IOException("write failed");
 			}
+		} catch(IOException e) {
+			System.err.println("Error writing rule metrics " + ruleMetricsFileName + " " + e);
+			return false;
 		}
-		
-		return fallenLeafChannels;
+		return true;
 	}
 
 	/**
-	Search all <code>lexerRuleSpec</code>s for <code>->type()</code> commands referencing tokens
-	specified in a tokensSpec and return a list of those not found.  These are potential cruft.
+	Parse the samples in profileDirectory with an interpreter of the grammar
+	set's parser, spread over the executor's threads, and print the decisions
+	in which it spent the most time predicting, the 20 slowest unless 
+	verbose, with how far ahead they looked, how often SLL prediction fell
+	back to full LL, and how many ambiguities were found, along with the rule
+	and the line in the grammar file where each is made.
 	*/
-	private static ArrayList<String> searchForFallenLeafTokensSpecTokens(
-		ArrayList<ANTLRv4Parser.LexerRuleSpecContext> lexerRules
-		, ArrayList<String> lexerTokensSpecTokens) {
-		
-		ArrayList<String> fallenLeafTokensSpecTokens = new ArrayList<>();
-		for (String s: lexerTokensSpecTokens) {
-			Boolean foundItInLexerRule = false;
-			if (verbose) System.out.println("searching for " + s);
-			lexerLoop:
-			for (ANTLRv4Parser.LexerRuleSpecContext lrsCtx: lexerRules) {
-				ANTLRv4Parser.LexerRuleBlockContext lrbCtx = lrsCtx.lexerRuleBlock();
-				ANTLRv4Parser.LexerAltListContext lalCtx = lrbCtx.lexerAltList();
-				for (ANTLRv4Parser.LexerAltContext laCtx: lalCtx.lexerAlt()) {
-					ANTLRv4Parser.LexerCommandsContext lcCtx = laCtx.lexerCommands();
-					if (lcCtx != null) {
-						for (ANTLRv4Parser.LexerCommandContext lexerCmdCtx: lcCtx.lexerCommand()) {
-							ANTLRv4Parser.LexerCommandNameContext lcnCtx = lexerCmdCtx.lexerCommandName();
-							if (lcnCtx.getText().equals("type") && lexerCmdCtx.lexerCommandExpr() != null) {
-								if (lexerCmdCtx.lexerCommandExpr().getText().equals(s)) {
-									foundItInLexerRule = true;
-									break lexerLoop;
-								}
-							}
-						}
+	@SuppressWarnings("try")
+	private static void profileDecisions(
+		GrammarSet grammarSet
+		, GrammarListener listener
+		, GrammarProfiler profiler
+		, ExecutorService executor) throws InterruptedException {
+		LintStats profileStats = new LintStats(grammarSet.toString());
+		ArrayList<String> startRules = Linter.startRules(grammarSet, listener);
+		if (startRules.isEmpty()) {
+			System.out.println(grammarSet + " has no start rule, not profiling decisions");
+			return;
+		}
+
+		ArrayList<Path> samples = null;
+		try {
+			samples = GrammarProfiler.sampleFiles(Paths.get(profileDirectory));
+		} catch(IOException e) {
+			System.err.println("Error reading sample directory " + profileDirectory + " " + e);
+			return;
+		}
+
+		System.out.println(
+			"profiling decisions of "
+			+ profiler.getFileName()
+			+ " parsing "
+			+ samples.size()
+			+ " samples in "
+			+ profileDirectory
+			+ " from "
+			+ startRules.get(0)
+			);
+		long start = System.nanoTime();
+		DecisionInfo[] decisions = null;
+		try (LintStats.Phase p = profileStats.begin("profile decisions")) {
+			decisions = profiler.profile(samples, startRules.get(0), Runtime.getRuntime().availableProcessors(), executor);
+		}
+		for (String s: profiler.getErrors()) {
+			System.err.println(s);
+		}
+		System.out.println(
+			"parsed "
+			+ profiler.getSampleCount()
+			+ " samples, "
+			+ profiler.getTokenCount()
+			+ " tokens, with "
+			+ profiler.getSyntaxErrorCount()
+			+ " syntax errors in "
+			+ ((System.nanoTime() - start) / 1000000)
+			+ " ms"
+			);
+
+		ArrayList<DecisionInfo> made = new ArrayList<>();
+		for (DecisionInfo info: decisions) {
+			if (info.invocations > 0) {
+				made.add(info);
+			}
+		}
+		made.sort(Comparator.comparingLong((DecisionInfo info) -> info.timeInPrediction).reversed());
+		int shown = verbose ? made.size() : Math.min(20, made.size());
+		if (made.isEmpty()) {
+			System.out.println("No decisions were made parsing the samples");
+		} else {
+			System.out.println("Decisions by time spent predicting...");
+		}
+		for (DecisionInfo info: made.subList(0, shown)) {
+			System.out.println(
+				profiler.getRuleName(info.decision)
+				+ " decision "
+				+ info.decision
+				+ " at "
+				+ profiler.getLocation(info.decision)
+				+ String.format(" %.3f ms", info.timeInPrediction / 1000000.0)
+				+ ", "
+				+ info.invocations
+				+ " predictions looking up to "
+				+ info.SLL_MaxLook
+				+ " tokens ahead, "
+				+ info.LL_Fallback
+				+ " LL fallbacks looking up to "
+				+ info.LL_MaxLook
+				+ ", "
+				+ info.ambiguities.size()
+				+ " ambiguities"
+				);
+		}
+		if (shown < made.size()) {
+			System.out.println("... and " + (made.size() - shown) + " more decisions, -verbose lists them all");
+		}
+
+		if (stats) {
+			profileStats.print(System.out);
+		}
+	}
+
+	/**
+	Print the lexer rules with the same body as a rule in another grammar
+	file, across all the grammar sets linted, one group of such rules per line
+	each qualified by its file name.  In a machine readable format, each rule
+	in a group which is not in the same file as the first is a finding.
+	*/
+	private static void reportDuplicatesAcrossGrammars() {
+		HashSet<String> fileNames = new HashSet<>();
+		for (TreeMap<String, Location> rules: runLexerRuleShapes.values()) {
+			for (Location location: rules.values()) {
+				fileNames.add(location.getFileName());
+			}
+		}
+		System.out.println("searching for lexer rules with the same body in " + fileNames.size() + " grammar files");
+
+		ArrayList<String> duplicates = new ArrayList<>();
+		ArrayList<TreeMap<String, Location>> groups = new ArrayList<>();
+		for (TreeMap<String, Location> rules: runLexerRuleShapes.values()) {
+			HashSet<String> groupFileNames = new HashSet<>();
+			for (Location location: rules.values()) {
+				groupFileNames.add(location.getFileName());
+			}
+			if (groupFileNames.size() > 1) {
+				groups.add(rules);
+			}
+		}
+		groups.sort((a, b) -> a.firstKey().compareTo(b.firstKey()));
+
+		for (TreeMap<String, Location> rules: groups) {
+			duplicates.add(String.join(" ", rules.keySet()));
+			if (findingWriter != null) {
+				String first = rules.firstKey();
+				Location firstLocation = rules.get(first);
+				for (Map.Entry<String, Location> entry: rules.entrySet()) {
+					if (!entry.getValue().getFileName().equals(firstLocation.getFileName())) {
+						String name = entry.getKey().substring(entry.getKey().lastIndexOf(':') + 1);
+						String related = first.substring(first.lastIndexOf(':') + 1) + " in " + firstLocation.getFileName();
+						findingWriter.write(new Finding(Finding.DUPLICATE_LEXER_RULE_ELSEWHERE, name, related), entry.getValue());
 					}
 				}
 			}
-			if (!foundItInLexerRule) {
-				fallenLeafTokensSpecTokens.add(s);
+		}
+
+		if (findingWriter == null) {
+			printFallenLeaves(duplicates
+				, "Lexer Rules with the same body as a rule in another grammar file..."
+				, "No Lexer Rule has the same body as a rule in another grammar file");
+		}
+	}
+
+	/**
+	Add the canonical forms of the lexer rules of a grammar set to those of
+	the run, each rule qualified by the name of the file defining it so a file
+	in several grammar sets counts once.
+	*/
+	private static synchronized void collectLexerRuleShapes(GrammarListener listener) {
+		for (Map.Entry<String, String[]> entry: listener.getLexerRuleShapes().entrySet()) {
+			Location location = listener.getDefinition(new Finding(Finding.DUPLICATE_LEXER_RULE, entry.getKey()));
+			if (location != null) {
+				runLexerRuleShapes.computeIfAbsent(entry.getValue()[1], k -> new TreeMap<>())
+					.put(location.getFileName() + ":" + entry.getKey(), location);
 			}
 		}
-		
-		return fallenLeafTokensSpecTokens;
 	}
 
 	/**
-	Search for Lexer modes which were specified in a <code>modeSpec</code> but are
-	never used in a <code>lexerCommand</code>.  Recursively checking for <code>lexerCommand</code>s 
-	in <code>lexerCommands</code> in <code>lexerAlt</code>s in <code>lexerAltList</code>s is
-	not necessary as a <code>lexerCommand</code> can only be specified once per <code>lexerRuleSpec</code>
-	as per the "Lexer Commands" section on page 283 of _The Definitive ANTLR 4 Reference_
-	ISBN 978-1-93435-699-9.
+	Print what the checks found of the indicated kind, as soon as every check
+	registered for it has finished, adding the findings to compare with the
+	baseline, under the indicated key, to baselined.  With a machine readable
+	format each finding is written as it is printed here.
 	*/
-	private static ArrayList<String> searchForFallenLeafModeSpecs(
-		ArrayList<ANTLRv4Parser.LexerRuleSpecContext> lexerRules
-		, ArrayList<String> modeSpecs) {
-		
-		ArrayList<String> modeCommands = new ArrayList<>();
-		modeCommands.add("mode");
-		modeCommands.add("pushMode");
-		modeCommands.add("popMode");
-		
-		ArrayList<String> fallenLeafModeSpecs = new ArrayList<>();
-		for (String s: modeSpecs) {
-			Boolean foundModeSpec = false;
-			if (verbose) System.out.println("searching for " + s );
-			lexerLoop:
-			for (ANTLRv4Parser.LexerRuleSpecContext lrsCtx: lexerRules) {
-				ANTLRv4Parser.LexerRuleBlockContext lrbCtx = lrsCtx.lexerRuleBlock();
-				ANTLRv4Parser.LexerAltListContext lalCtx = lrbCtx.lexerAltList();
-				for (ANTLRv4Parser.LexerAltContext laCtx: lalCtx.lexerAlt()) {
-					ANTLRv4Parser.LexerCommandsContext lcCtx = laCtx.lexerCommands();
-					if (lcCtx != null) {
-						for (ANTLRv4Parser.LexerCommandContext lexerCmdCtx: lcCtx.lexerCommand()) {
-							ANTLRv4Parser.LexerCommandNameContext lcnCtx = lexerCmdCtx.lexerCommandName();
-							if (modeCommands.contains(lcnCtx.getText()) && lexerCmdCtx.lexerCommandExpr() != null) {
-								if (lexerCmdCtx.lexerCommandExpr().getText().equals(s)) {
-									foundModeSpec = true;
-									if (verbose) System.out.println("\tfound in lexer rule " + lrsCtx.TOKEN_REF().getSymbol().getText());
-									break lexerLoop;
-								}
-							}
-						}
+	private static void reportChecked(String kind, CheckContext checked, String baselineKey, ArrayList<Finding> baselined) {
+		GrammarListener listener = checked.getListener();
+		switch (kind) {
+			case Check.LEXER_TOKEN:
+				printNotes(checked, kind);
+				ArrayList<String> newFallenLeafTokens = new ArrayList<>();
+				checked.getNames(Finding.TOKEN).forEach(foundNew(Finding.TOKEN, listener, baselineKey, newFallenLeafTokens, baselined));
+				if (findingWriter == null) {
+					printNewFallenLeaves(newFallenLeafTokens
+						, "Lexer Tokens with no rule referencing them..."
+						, "All Lexer Tokens are referenced in at least one rule");
+				}
+				break;
+			case Check.LEXER_CHANNEL:
+				if (listener.getLexerChannels().size() > 0) {
+					System.out.println(
+						"searching for " 
+						+ listener.getLexerChannels().size()
+						+ " channels in " 
+						+ listener.getLexerRuleNames().size()
+						+ " lexer rules"
+						);
+					printNotes(checked, Check.LEXER_CHANNEL);
+					ArrayList<String> fallenLeafChannels = new ArrayList<>();
+					checked.getNames(Finding.CHANNEL)
+						.forEach(foundNew(Finding.CHANNEL, listener, baselineKey, fallenLeafChannels, baselined));
+					if (findingWriter == null) {
+						printNewFallenLeaves(fallenLeafChannels
+							, "Lexer Channels with no rule referencing them..."
+							, "All Lexer Channels are referenced in at least one rule");
+					}
+				}
+				break;
+			case Check.TOKENS_SPEC_TOKEN:
+				if (listener.getLexerTokensSpecTokens().size() > 0) {
+					System.out.println(
+						"searching for " 
+						+ listener.getLexerTokensSpecTokens().size()
+						+ " tokensSpec tokens in " 
+						+ listener.getLexerRuleNames().size()
+						+ " lexer rules"
+						);
+					printNotes(checked, Check.TOKENS_SPEC_TOKEN);
+					ArrayList<String> fallenLeafTokensSpecTokens = new ArrayList<>();
+					checked.getNames(Finding.TOKENS_SPEC_TOKEN)
+						.forEach(foundNew(Finding.TOKENS_SPEC_TOKEN, listener, baselineKey, fallenLeafTokensSpecTokens, baselined));
+					if (findingWriter == null) {
+						printNewFallenLeaves(fallenLeafTokensSpecTokens
+							, "Lexer tokensSpec Tokens with no ->type() command referencing them..."
+							, "All Lexer tokensSpec Tokens are referenced in at least one ->type() command");
 					}
 				}
+				break;
+			case Check.MODE_SPEC:
+				if (listener.getModeSpecs().size() > 0) {
+					System.out.println(
+						"searching for " 
+						+ listener.getModeSpecs().size()
+						+ " modeSpecs in " 
+						+ listener.getLexerRuleNames().size()
+						+ " lexer rules"
+						);
+					printNotes(checked, Check.MODE_SPEC);
+					ArrayList<String> fallenLeafModeSpecs = new ArrayList<>();
+					checked.getNames(Finding.MODE_SPEC)
+						.forEach(foundNew(Finding.MODE_SPEC, listener, baselineKey, fallenLeafModeSpecs, baselined));
+					if (findingWriter == null) {
+						printNewFallenLeaves(fallenLeafModeSpecs
+							, "Lexer modeSpecs with no ->[push|pop]mode() command referencing them..."
+							, "All modeSpecs are referenced in at least one ->[push|pop]mode() command");
+					}
+				}
+				break;
+			default:
+				printNotes(checked, kind);
+		}
+	}
+
+	/**
+	Print what the checks noted about definitions of the indicated kind, 
+	with the section reporting that kind.
+	*/
+	private static void printNotes(CheckContext checked, String kind) {
+		for (String note: checked.getNotes(kind)) {
+			System.out.println(note);
+		}
+	}
+
+	/**
+	Print the list of things a search for fallen leaves found, as 
+	<code>printFallenLeaves</code> does, except with a baseline the list is 
+	of those not in it, and so is said to be.
+	*/
+	private static void printNewFallenLeaves(ArrayList<String> fallenLeaves, String heading, String noneFound) {
+		if (baseline == null) {
+			printFallenLeaves(fallenLeaves, heading, noneFound);
+		} else {
+			printFallenLeaves(fallenLeaves, "New " + heading, "No new " + heading.substring(0, heading.length() - 3));
+		}
+	}
+
+	/**
+	Count what the searches for fallen leaves in a grammar set found which is
+	not in the baseline, and print what is in the baseline but was not found,
+	or add everything found to the baseline being written.
+	*/
+	private static synchronized void compareWithBaseline(String baselineKey, ArrayList<Finding> baselined) {
+		if (runBaseline != null) {
+			for (Finding f: baselined) {
+				runBaseline.add(baselineKey, f);
+			}
+		}
+		if (baseline != null) {
+			for (Finding f: baselined) {
+				if (!baseline.contains(baselineKey, f)) {
+					newFindingCount++;
+				}
 			}
-			if (!foundModeSpec) {
-				fallenLeafModeSpecs.add(s);
+			ArrayList<String> resolved = new ArrayList<>();
+			for (Finding f: baseline.resolved(baselineKey, baselined)) {
+				resolved.add(f.toString());
 			}
+			printFallenLeaves(resolved
+				, "Findings in the baseline no longer found..."
+				, "All findings in the baseline are still found");
 		}
-		
-		return fallenLeafModeSpecs;
 	}
 
 	/**
-	A <code>lexerAltList<code> contains a collection of <code>lexerAlt</code>, each of which contains a 
-	<code>lexerElements</code>, which contains a collection of <code>lexerElement</code>, which contains 
-	either a <code>lexerAtom</code> or a <code>lexerBlock</code>.  A <code>lexerAtom</code> might refer to the token 
-	we're looking for.  A <code>lexerBlock</code> might contain a <code>lexerAltList</code>, in which
-	case we recurse.
-	
-	A <code>lexerElement</code> might also contain other things, but we don't care about those.
+	Print the list of things a search found under a heading, or that it found
+	nothing.
+	*/
+	private static void printFallenLeaves(ArrayList<String> fallenLeaves, String heading, String noneFound) {
+		if (fallenLeaves.size() > 0) {
+			System.out.println(heading);
+			for (String s: fallenLeaves) {
+				System.out.println(s);
+			}
+		} else {
+			System.out.println(noneFound);
+		}
+	}
+
+	/**
+	Return what a search should do with each thing it finds, add it to the
+	list, which later searches may use, and write it with the FindingWriter
+	if there is one.
+	*/
+	private static Consumer<String> found(String category, GrammarListener listener, ArrayList<String> fallenLeaves) {
+		if (findingWriter == null) {
+			return fallenLeaves::add;
+		}
+		return s -> {
+			fallenLeaves.add(s);
+			Finding finding = new Finding(category, s);
+			findingWriter.write(finding, listener.getDefinition(finding));
+		};
+	}
+
+	/**
+	Return what a search for fallen leaves should do with each thing it finds,
+	add it to the list of findings to compare with the baseline and, unless
+	it is in the baseline, do what <code>found</code> would.
+	*/
+	private static Consumer<String> foundNew(
+		String category
+		, GrammarListener listener
+		, String baselineKey
+		, ArrayList<String> fallenLeaves
+		, ArrayList<Finding> baselined) {
+		Consumer<String> found = found(category, listener, fallenLeaves);
+		if (baseline == null && runBaseline == null) {
+			return found;
+		}
+		return s -> {
+			Finding finding = new Finding(category, s);
+			baselined.add(finding);
+			if (baseline == null || !baseline.contains(baselineKey, finding)) {
+				found.accept(s);
+			}
+		};
+	}
+
+	/**
+	Return what the search for duplicate lexer rules should do with each group
+	it finds, add it to the list as a line of rule names, and write each rule
+	after the first with the FindingWriter if there is one.
+	*/
+	private static Consumer<List<String>> foundDuplicates(GrammarListener listener, ArrayList<String> duplicates) {
+		return group -> {
+			duplicates.add(String.join(" ", group));
+			if (findingWriter != null) {
+				for (String s: group.subList(1, group.size())) {
+					Finding finding = new Finding(Finding.DUPLICATE_LEXER_RULE, s, group.get(0));
+					findingWriter.write(finding, listener.getDefinition(finding));
+				}
+			}
+		};
+	}
+
+	/**
+	Return what the search for shadowed tokens should do with each token it
+	finds, add it to the list along with the rule matching its text instead,
+	and write it with the FindingWriter if there is one.
 	*/
-	private static Boolean searchLexerAltList(ANTLRv4Parser.LexerAltListContext altListCtx, String aString, String lexerRuleName) {
-		Boolean foundIt = false;
-
-		loop:
-		for (ANTLRv4Parser.LexerAltContext laCtx: altListCtx.lexerAlt()) {
-			ANTLRv4Parser.LexerElementsContext lesCtx = laCtx.lexerElements();
-			for(ANTLRv4Parser.LexerElementContext leCtx: lesCtx.lexerElement()) {
-				if (leCtx.lexerAtom() != null) {
-					ANTLRv4Parser.TerminalContext tc = leCtx.lexerAtom().terminal();
-					if (tc != null) {
-						if (tc.getText().equals(aString)) {
-							if (verbose) System.out.println("\tfound in lexer rule " + lexerRuleName);
-							foundIt = true;
-							break loop;
-						}
+	private static BiConsumer<String, String> foundShadowed(TokenShadowing shadowing, ArrayList<String> shadowed) {
+		return (s, shadowedBy) -> {
+			shadowed.add(s + " matched by " + shadowedBy);
+			if (findingWriter != null) {
+				findingWriter.write(new Finding(Finding.SHADOWED_TOKEN, s, shadowedBy), shadowing.getDefinition(s));
+			}
+		};
+	}
+
+	/**
+	Return what the search for costly lexer constructs should do with each
+	one it finds, add it to the list with its estimated cost, and write it 
+	with the FindingWriter if there is one.  A mode is located where it is
+	declared, which DEFAULT_MODE is not.
+	*/
+	private static BiConsumer<Long, Finding> foundCostly(GrammarListener listener, ArrayList<String> costly) {
+		return (cost, finding) -> {
+			costly.add(cost + " " + finding.getMessage());
+			if (findingWriter != null) {
+				Finding definedBy = finding.getCategory().equals(Finding.MANY_KEYWORDS) 
+					? new Finding(Finding.MODE_SPEC, finding.getName()) : finding;
+				findingWriter.write(finding, listener.getDefinition(definedBy));
+			}
+		};
+	}
+
+	/**
+	Wait for changes to any of the grammar files which have been loaded.  Only
+	the changed files are lexed and parsed again, after which the searches are
+	repeated and the differences from the previous findings printed.
+
+	This method does not return; the process is expected to be interrupted.
+	*/
+	private static void watchGrammars(
+		GrammarSet grammarSet
+		, HashMap<String, LoadedGrammar> loadedGrammars
+		, GrammarListener listener) throws IOException, InterruptedException {
+
+		WatchService watcher = FileSystems.getDefault().newWatchService();
+		HashSet<Path> watchedDirectories = new HashSet<>();
+		watchDirectories(loadedGrammars.keySet(), watcher, watchedDirectories);
+		Set<Finding> findings = linter.collectFindings(listener, grammarSet, System.out).keySet();
+
+		System.out.println("watching " + loadedGrammars.size() + " grammar files for changes");
+
+		while (true) {
+			HashMap<Path, String> watchedFiles = new HashMap<>();
+			for (String fileName: loadedGrammars.keySet()) {
+				watchedFiles.put(Paths.get(fileName).toAbsolutePath().normalize(), fileName);
+			}
+
+			/*
+			Saving a file in an editor may produce several events, so after the
+			first one keep collecting until things have been quiet for a moment.
+			*/
+			LinkedHashSet<String> changedFileNames = new LinkedHashSet<>();
+			WatchKey key = watcher.take();
+			while (key != null) {
+				Path directory = (Path)key.watchable();
+				for (WatchEvent<?> event: key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						changedFileNames.addAll(loadedGrammars.keySet());
+						continue;
 					}
-				} else if (leCtx.lexerBlock() != null) {
-					if (leCtx.lexerBlock().lexerAltList() != null) {
-						if (searchLexerAltList(leCtx.lexerBlock().lexerAltList(), aString, lexerRuleName)) {
-							foundIt = true;
-							break loop;
-						}
+					Path changed = directory.resolve((Path)event.context()).toAbsolutePath().normalize();
+					if (watchedFiles.containsKey(changed)) {
+						changedFileNames.add(watchedFiles.get(changed));
 					}
 				}
+				key.reset();
+				key = watcher.poll(50, TimeUnit.MILLISECONDS);
+			}
+
+			if (changedFileNames.isEmpty()) {
+				continue;
+			}
+
+			long start = System.nanoTime();
+			HashMap<String, LoadedGrammar> previouslyLoaded = new HashMap<>();
+			for (String fileName: changedFileNames) {
+				previouslyLoaded.put(fileName, loadedGrammars.remove(fileName));
+			}
+
+			GrammarListener newListener = linter.assembleGrammars(grammarSet, loadedGrammars, System.out, System.err);
+			if (newListener == null) {
+				for (Map.Entry<String, LoadedGrammar> entry: previouslyLoaded.entrySet()) {
+					loadedGrammars.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+				System.out.println("keeping previous findings until the error is corrected");
+				continue;
+			}
+			watchDirectories(loadedGrammars.keySet(), watcher, watchedDirectories);
+
+			Set<Finding> newFindings = linter.collectFindings(newListener, grammarSet, System.out).keySet();
+			Boolean changedFindings = false;
+			for (Finding f: findings) {
+				if (!newFindings.contains(f)) {
+					System.out.println("resolved " + f);
+					changedFindings = true;
+				}
 			}
+			for (Finding f: newFindings) {
+				if (!findings.contains(f)) {
+					System.out.println("new " + f);
+					changedFindings = true;
+				}
+			}
+			if (!changedFindings) {
+				System.out.println("no change in findings");
+			}
+			findings = newFindings;
+
+			System.out.println("relinted in " + ((System.nanoTime() - start) / 1000000) + " ms");
 		}
-		
-		return foundIt;
 	}
-	
+
 	/**
-	A Parser rule contains an <code>alternative</code>, which contains a collection of
-	<code>element</code>, which contains an <code>atom</code>, which contains a <code>terminal</code> which may
-	refer to the token we're searching for.
-	
-	An <code>element</code> may also contain an <code>ebnf</code>, which contains a <code>block</code>, which contains 
-	an <code>altList</code>, which contains a collection of <code>alternative</code>, in which case we
-	recurse.
+	Register the directory containing each of the indicated files with the
+	WatchService, if it is not already registered.
 	*/
-	private static Boolean searchParserAlternative(ANTLRv4Parser.AlternativeContext altCtx, String aString, String parserRuleName) {
-		//System.out.println("searchParserAlternative(" + altCtx.getText() + ", " + aString + ", " + parserRuleName + ")");
-		Boolean foundIt = false;
-		
-		loop:
-		for (ANTLRv4Parser.ElementContext elmntCtx: altCtx.element()) {
-			if (elmntCtx.atom() != null) {
-				if (elmntCtx.atom().terminal() != null) {
-					if (elmntCtx.atom().terminal().TOKEN_REF() != null) {
-						if (elmntCtx.atom().terminal().TOKEN_REF().getText().equals(aString)) {
-							if (verbose) System.out.println("\tfound in parser rule " + parserRuleName);
-							foundIt = true;
-							break loop;
-						}
-					}
+	private static void watchDirectories(
+		Collection<String> fileNames
+		, WatchService watcher
+		, HashSet<Path> watchedDirectories) throws IOException {
+
+		for (String fileName: fileNames) {
+			Path directory = Paths.get(fileName).toAbsolutePath().normalize().getParent();
+			if (watchedDirectories.add(directory)) {
+				directory.register(
+					watcher
+					, StandardWatchEventKinds.ENTRY_CREATE
+					, StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+		}
+	}
+
+	/**
+	Serve lint requests on a loopback port, if the address is a number, or else
+	on a Unix domain socket at the indicated path.  Grammar sets given on the 
+	command line are loaded first, so requests for them are warm from the start.
+
+	Each request is a single line naming grammar sets as in a manifest, and the
+	response is what would have been written to stdout and stderr for them
+	followed by a line with what would have been the exit code, after which the
+	connection is closed.  A request of <code>shutdown</code> stops the server.
+	An error linting a request is reported in its response, and the server
+	goes on to the next.
+
+	What is collected from each grammar file is kept between requests, and a
+	file is only lexed and parsed again once its last modified time changes.
+	Requests are handled one at a time.
+
+	This method returns only when the server is shut down.
+	*/
+	private static void serve(String address) throws IOException {
+		HashMap<String, LoadedGrammar> loadedGrammars = new HashMap<>();
+		HashMap<String, FileTime> lastModifiedTimes = new HashMap<>();
+		for (GrammarSet grammarSet: grammarSets) {
+			lintGrammarSets(new ArrayList<>(List.of(grammarSet)), loadedGrammars, lastModifiedTimes, false);
+		}
+
+		ServerSocketChannel server = null;
+		Path socketPath = null;
+		if (address.matches("\\d+")) {
+			server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+		} else {
+			socketPath = Paths.get(address);
+			Files.deleteIfExists(socketPath);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(socketPath));
+		}
+		System.out.println("serving lint requests on " + address);
+
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		Boolean shutdown = false;
+		while (!shutdown) {
+			try (SocketChannel client = server.accept()) {
+				BufferedReader in = new BufferedReader(
+					new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+				PrintStream out = new PrintStream(
+					new BufferedOutputStream(Channels.newOutputStream(client)), false, StandardCharsets.UTF_8);
+				String request = in.readLine();
+				if (request == null) {
+					continue;
+				}
+				if (request.trim().equals("shutdown")) {
+					shutdown = true;
+					out.println("exit 0");
+					out.flush();
+					continue;
 				}
-			} else if (elmntCtx.ebnf() != null) {
-				if (elmntCtx.ebnf().block() != null) {
-					if (elmntCtx.ebnf().block().altList() != null) {
-						for (ANTLRv4Parser.AlternativeContext ac: elmntCtx.ebnf().block().altList().alternative()) {
-							if (searchParserAlternative(ac, aString, parserRuleName)) {
-								foundIt = true;
-								break loop;
-							}
-						}
+
+				/*
+				With a machine readable format only the findings are sent to the
+				client, followed by the exit line, the rest going to standard error.
+				*/
+				int exitCode = 0;
+				if (format.equals(FindingWriter.TEXT)) {
+					System.setOut(out);
+					System.setErr(out);
+				} else {
+					System.setOut(stderr);
+					findingWriter = FindingWriter.of(format, out);
+					findingWriter.begin();
+				}
+				try {
+					ArrayList<GrammarSet> requestGrammarSets = parseGrammarSets(request);
+					if (requestGrammarSets == null) {
+						System.out.println("please specify either a combinedGrammar or both a lexerGrammar and parserGrammar");
+						exitCode = 4;
+					} else if (!lintGrammarSets(requestGrammarSets, loadedGrammars, lastModifiedTimes, true)) {
+						exitCode = 12;
+					}
+				} catch(ParseException exp) {
+					System.out.println("Request parsing failed.  Reason: " + exp.getMessage());
+					exitCode = 16;
+				} catch(RuntimeException e) {
+					/*
+					An error linting one request must not stop the server, which 
+					reports it as it would have been reported to a single run.
+					*/
+					System.err.println("Error linting request " + request + " " + e);
+					e.printStackTrace(System.err);
+					exitCode = 12;
+				} finally {
+					System.setOut(stdout);
+					System.setErr(stderr);
+					if (findingWriter != null) {
+						findingWriter.end();
+						findingWriter = null;
 					}
 				}
+				out.println("exit " + exitCode);
+				out.flush();
+			} catch(IOException e) {
+				System.err.println("Error serving lint request " + e);
 			}
 		}
-		//System.out.println("searchParserAlternative() returning " + foundIt);
-		return foundIt;
+
+		server.close();
+		if (socketPath != null) {
+			Files.deleteIfExists(socketPath);
+		}
 	}
-	
+
 	/**
-	Lex and parse the indicated grammar file, then walk the parse tree with
-	the GrammarListener which will collect tokens of possible interest, lexer 
-	rules, and parser rules.
+	Lint each of the indicated grammar sets for the server, reusing what was
+	collected from files which have not been modified since.  Returns false if 
+	any set could not be loaded.
 	*/
-	private static void lexAndParseGrammar(String fileName, GrammarListener listener) {
-	
-		CharStream cs = null;
-		try {
-			cs = CharStreams.fromFileName(fileName);  //load the file
-		} catch(Exception e) {
-			System.err.println("Error instantiating Charstreams.fromFileName(" + fileName + ") " + e);
-			System.exit(12);
+	private static Boolean lintGrammarSets(
+		ArrayList<GrammarSet> requestGrammarSets
+		, HashMap<String, LoadedGrammar> loadedGrammars
+		, HashMap<String, FileTime> lastModifiedTimes
+		, Boolean report) {
+
+		for (String fileName: new ArrayList<>(loadedGrammars.keySet())) {
+			FileTime lastModified = lastModifiedTime(fileName);
+			if (lastModified == null || !lastModified.equals(lastModifiedTimes.get(fileName))) {
+				loadedGrammars.remove(fileName);
+				lastModifiedTimes.remove(fileName);
+			}
 		}
 
-		System.out.println("lexing " + fileName);
-		ANTLRv4Lexer lexer = new ANTLRv4Lexer(cs);  //instantiate a lexer
-		CommonTokenStream tokens = new CommonTokenStream(lexer); //scan stream for tokens
+		Boolean allLoaded = true;
+		for (int i = 0; i < requestGrammarSets.size(); i++) {
+			GrammarSet grammarSet = requestGrammarSets.get(i);
+			if (report && requestGrammarSets.size() > 1) {
+				System.out.println("linting grammar set " + (i + 1) + " of " + requestGrammarSets.size() + " " + grammarSet);
+			}
+			/*
+			The time is taken before loading so a file modified while it is being
+			loaded is loaded again for the next request.
+			*/
+			HashSet<String> alreadyLoaded = new HashSet<>(loadedGrammars.keySet());
+			HashMap<String, FileTime> timesBeforeLoading = new HashMap<>();
+			for (String fileName: grammarSet.getGrammarFileNames()) {
+				timesBeforeLoading.put(fileName, lastModifiedTime(fileName));
+			}
+			GrammarListener listener = linter.assembleGrammars(grammarSet, loadedGrammars, System.out, System.err);
+			for (String fileName: loadedGrammars.keySet()) {
+				if (!alreadyLoaded.contains(fileName)) {
+					FileTime lastModified = timesBeforeLoading.containsKey(fileName) 
+						? timesBeforeLoading.get(fileName) : lastModifiedTime(fileName);
+					lastModifiedTimes.put(fileName, lastModified);
+				}
+			}
+			if (listener == null) {
+				allLoaded = false;
+				continue;
+			}
+			if (report) {
+				report(listener, grammarSet);
+			}
+		}
 
-		System.out.println("parsing " + fileName);
-		ANTLRv4Parser parser = new ANTLRv4Parser(tokens);  //parse the tokens	
+		return allLoaded;
+	}
 
-		ParseTree tree = null;
-		try {
-			tree = parser.grammarSpec(); // parse the content and get the tree
-		} catch(Exception e) {
-			System.err.println("Parser error " + e);
-			System.exit(12);
-		}
-		
-		ParseTreeWalker walker = new ParseTreeWalker();
-	
-		System.out.println("walking parse tree with " + listener.getClass().getName());
-	
+	private static FileTime lastModifiedTime(String fileName) {
 		try {
-			walker.walk(listener, tree);
-		} catch(Exception e) {
-			System.err.println(listener.getClass().getName() + " error " + e);
-			e.printStackTrace();
-			System.exit(12);
+			return Files.getLastModifiedTime(Paths.get(fileName));
+		} catch(IOException e) {
+			return null;
 		}
-
 	}
-	
+
 	/**
 	Process command line options.
 	*/
@@ -470,21 +1334,97 @@ public class AntlrLint {
 		HelpFormatter formatter = new HelpFormatter();
 		
 		Option lexerGrammar = new Option("lexerGrammar", true
-			, "path and file name of a single lexer grammar to preprocess, ignored if combinedGrammar is provided");
+			, "path and file name of a lexer grammar to preprocess, may be repeated, each paired with a parserGrammar");
 		Option parserGrammar = new Option("parserGrammar", true
-			, "path and file name of a single parser grammar to preprocess, ignored if combinedGrammar is provided");
+			, "path and file name of a parser grammar to preprocess, may be repeated, each paired with a lexerGrammar");
 		Option combinedGrammar = new Option("combinedGrammar", true
-			, "path and file name of a single combined grammar to preprocess");
+			, "path and file name of a combined grammar to preprocess, may be repeated");
 		Option path = new Option("path", true
-			, "path where imported files are located including trailing file system separator");
+			, "path where imported files are located, may be repeated to search several in order");
+		Option manifest = new Option("manifest", true
+			, "file listing grammar sets to preprocess one per line, each line as lexerGrammar, parserGrammar, "
+			+ "combinedGrammar, and path options");
 		Option verbose_ = new Option("verbose", false, "print more detailed progress messages");
+		Option cacheDir = new Option("cacheDir", true
+			, "directory in which to cache what was collected from each grammar file, default " + cacheDirectory);
+		Option noCache = new Option("noCache", false, "do not use the cache, always lex and parse every grammar file");
+		Option purgeCache_ = new Option("purgeCache", false, "delete all entries in the cache before processing");
+		Option watch_ = new Option("watch", false
+			, "after reporting, wait for grammar files to change and report new and resolved findings");
+		Option noParseTree = new Option("noParseTree", false
+			, "collect from each grammar file while it is parsed instead of building and walking a parse tree");
+		Option tokenScan_ = new Option("tokenScan", false
+			, "collect from the tokens of each grammar file without parsing it, faster but less exact");
+		Option crossCheck_ = new Option("crossCheck", false
+			, "with tokenScan, also parse each grammar file and fail if what was collected differs");
+		Option serve_ = new Option("serve", true
+			, "serve lint requests on this loopback port number or Unix domain socket path until sent shutdown");
+		Option stats_ = new Option("stats", false
+			, "report time, bytes allocated, and counts of tokens, parse tree nodes, and rules for each phase and file");
+		Option format_ = new Option("format", true
+			, "write findings as text, jsonl (one JSON object per line), or sarif, default " + format);
+		Option startRule_ = new Option("startRule", true
+			, "comma separated parser rules from which all others should be reachable, default the first parser rule");
+		Option scanDir = new Option("scanDir", true
+			, "directory tree in which to find grammar sets, pairing each parser grammar with the lexer grammar "
+			+ "named by its tokenVocab");
+		Option parallelism_ = new Option("parallelism", true
+			, "number of grammar sets to lint at once, default the number of processors with scanDir, otherwise 1");
+		Option unreachable = new Option("unreachable", false
+			, "also report parser rules unreachable from the start rules, fragments used only by unreferenced "
+			+ "tokens, and modes entered only from unreachable modes");
+		Option duplicateRules = new Option("duplicateRules", false
+			, "also report lexer rules in the same mode with the same body, and with several grammar sets "
+			+ "those with the same body in different grammar files");
+		Option costlyConstructs = new Option("costlyConstructs", false
+			, "also report lexer constructs which make the lexer large or slow, most costly first");
+		Option shadowedTokens_ = new Option("shadowedTokens", false
+			, "also load each lexer grammar with the ANTLR tool and report tokens another rule matches instead");
+		Option profile = new Option("profile", true
+			, "directory tree of sample inputs to parse with an interpreter of each parser grammar, reporting "
+			+ "the time spent, lookahead, LL fallbacks, and ambiguities of its slowest decisions");
+		Option ruleMetrics = new Option("ruleMetrics", true
+			, "also load each parser grammar with the ANTLR tool and list its rules' ATN states, decisions, "
+			+ "LL(1) decisions, left recursion, and fan-in and fan-out sorted by one of " 
+			+ String.join(", ", ParserRuleMetrics.COLUMNS));
+		Option ruleMetricsCsv = new Option("ruleMetricsCsv", true
+			, "file to write the ruleMetrics of every parser rule to as comma separated values, "
+			+ "implying ruleMetrics sorted by states if not given");
+		Option baseline_ = new Option("baseline", true
+			, "file of accepted unreferenced token, channel, and mode findings, written if it does not exist, "
+			+ "otherwise only new and resolved findings are reported and new ones exit with 8");
+		Option updateBaseline_ = new Option("updateBaseline", false
+			, "write the baseline file with the current findings even if it exists");
 		Option help = new Option("help", false, "print this message");
 
 		options.addOption(lexerGrammar);
 		options.addOption(parserGrammar);
 		options.addOption(combinedGrammar);
 		options.addOption(path);
+		options.addOption(manifest);
 		options.addOption(verbose_);
+		options.addOption(cacheDir);
+		options.addOption(noCache);
+		options.addOption(purgeCache_);
+		options.addOption(watch_);
+		options.addOption(noParseTree);
+		options.addOption(tokenScan_);
+		options.addOption(crossCheck_);
+		options.addOption(serve_);
+		options.addOption(stats_);
+		options.addOption(format_);
+		options.addOption(startRule_);
+		options.addOption(scanDir);
+		options.addOption(parallelism_);
+		options.addOption(unreachable);
+		options.addOption(duplicateRules);
+		options.addOption(costlyConstructs);
+		options.addOption(shadowedTokens_);
+		options.addOption(profile);
+		options.addOption(ruleMetrics);
+		options.addOption(ruleMetricsCsv);
+		options.addOption(baseline_);
+		options.addOption(updateBaseline_);
 		options.addOption(help);
 
 		try {
@@ -499,25 +1439,244 @@ public class AntlrLint {
 			System.exit(0);
 		}
 
-		if (line.hasOption("verbose_")) {
+		if (line.hasOption("verbose")) {
 			verbose = true;
 		}
 
-		if (line.hasOption("combinedGrammar")) {
-			combinedFileName = line.getOptionValue("combinedGrammar");
-		} else if (line.hasOption("lexerGrammar") && line.hasOption("parserGrammar")) {
-			lexerFileName = line.getOptionValue("lexerGrammar");
-			parserFileName = line.getOptionValue("parserGrammar");
-		} else {
+		if (line.hasOption("path")) {
+			searchPaths.addAll(Arrays.asList(line.getOptionValues("path")));
+		}
+
+		if (line.hasOption("startRule")) {
+			startRule = line.getOptionValue("startRule");
+		}
+
+		if (!addGrammarSets(line, searchPaths, startRule, grammarSets)) {
+			System.err.println("please pair each lexerGrammar with a parserGrammar");
+			formatter.printHelp( "AntlrLint", options, true );
+			System.exit(4);
+		}
+
+		if (line.hasOption("manifest")) {
+			readManifest(line.getOptionValue("manifest"));
+		}
+
+		if (line.hasOption("stats")) {
+			stats = true;
+		}
+
+		if (line.hasOption("serve")) {
+			serveAddress = line.getOptionValue("serve");
+		}
+
+		if (line.hasOption("format")) {
+			format = line.getOptionValue("format");
+			if (!FindingWriter.isFormat(format)) {
+				System.err.println("please specify a format of text, jsonl, or sarif");
+				System.exit(4);
+			}
+		}
+
+		if (line.hasOption("scanDir")) {
+			scanDirectory = line.getOptionValue("scanDir");
+		}
+
+		if (line.hasOption("parallelism")) {
+			try {
+				parallelism = Integer.parseInt(line.getOptionValue("parallelism"));
+			} catch(NumberFormatException e) {
+				parallelism = 0;
+			}
+			if (parallelism < 1) {
+				System.err.println("please specify a parallelism of at least 1");
+				System.exit(4);
+			}
+		}
+
+		if (grammarSets.isEmpty() && serveAddress == null && scanDirectory == null) {
 			System.err.println("please specify either a combinedGrammar or both a lexerGrammar and parserGrammar");
 			formatter.printHelp( "AntlrLint", options, true );
 			System.exit(4);
 		}
 
-		if (line.hasOption("path")) {
-			pathToFile = line.getOptionValue("path");
+		if (line.hasOption("cacheDir")) {
+			cacheDirectory = line.getOptionValue("cacheDir");
 		}
 
-	}	
-}
+		if (line.hasOption("noCache")) {
+			useCache = false;
+		}
+
+		if (line.hasOption("purgeCache")) {
+			purgeCache = true;
+		}
+
+		if (line.hasOption("watch")) {
+			watch = true;
+			if (grammarSets.size() > 1 || scanDirectory != null) {
+				System.err.println("please specify a single grammar set to watch");
+				System.exit(4);
+			}
+			if (serveAddress != null) {
+				System.err.println("please specify either watch or serve");
+				System.exit(4);
+			}
+			if (!format.equals(FindingWriter.TEXT)) {
+				System.err.println("please specify the text format to watch");
+				System.exit(4);
+			}
+		}
 
+		linter.setVerbose(verbose);
+		linter.setStats(stats);
+		linter.setBuildParseTree(!line.hasOption("noParseTree"));
+		linter.setTokenScan(line.hasOption("tokenScan"), line.hasOption("crossCheck"));
+		linter.setUnreachable(line.hasOption("unreachable"));
+		linter.setDuplicateRules(line.hasOption("duplicateRules"));
+		linter.setCostlyConstructs(line.hasOption("costlyConstructs"));
+		linter.setShadowedTokens(line.hasOption("shadowedTokens"));
+
+		if (line.hasOption("profile")) {
+			profileDirectory = line.getOptionValue("profile");
+			if (!Files.isDirectory(Paths.get(profileDirectory))) {
+				System.err.println("please specify a directory of sample inputs to profile");
+				System.exit(4);
+			}
+		}
+
+		if (line.hasOption("ruleMetrics")) {
+			ruleMetricsColumn = line.getOptionValue("ruleMetrics");
+			if (ParserRuleMetrics.comparator(ruleMetricsColumn) == null) {
+				System.err.println("please specify ruleMetrics sorted by one of " + String.join(", ", ParserRuleMetrics.COLUMNS));
+				System.exit(4);
+			}
+		}
+
+		if (line.hasOption("ruleMetricsCsv")) {
+			ruleMetricsFileName = line.getOptionValue("ruleMetricsCsv");
+			if (ruleMetricsColumn == null) {
+				ruleMetricsColumn = "states";
+			}
+			if (serveAddress != null || watch) {
+				System.err.println("please specify ruleMetricsCsv without watch or serve");
+				System.exit(4);
+			}
+		}
+
+		if (line.hasOption("baseline")) {
+			baselineFileName = line.getOptionValue("baseline");
+			if (serveAddress != null) {
+				System.err.println("please specify either baseline or serve");
+				System.exit(4);
+			}
+		}
+
+		if (line.hasOption("updateBaseline")) {
+			updateBaseline = true;
+			if (baselineFileName == null) {
+				System.err.println("please specify the baseline file to update");
+				System.exit(4);
+			}
+		}
+
+	}
+
+	/**
+	Add a GrammarSet for each combinedGrammar and each lexerGrammar and 
+	parserGrammar pair, in the order they appear.  Returns false if there is
+	a lexerGrammar without a parserGrammar or vice versa.
+	*/
+	private static Boolean addGrammarSets(
+		CommandLine line
+		, List<String> searchPaths
+		, String startRule
+		, ArrayList<GrammarSet> grammarSets) {
+		ArrayDeque<String> lexerFileNames = new ArrayDeque<>();
+		ArrayDeque<String> parserFileNames = new ArrayDeque<>();
+
+		for (Option option: line.getOptions()) {
+			GrammarSet grammarSet = null;
+			if (option.getOpt().equals("combinedGrammar")) {
+				grammarSet = new GrammarSet(option.getValue(), searchPaths);
+			} else if (option.getOpt().equals("lexerGrammar")) {
+				lexerFileNames.add(option.getValue());
+			} else if (option.getOpt().equals("parserGrammar")) {
+				parserFileNames.add(option.getValue());
+			}
+			if (!lexerFileNames.isEmpty() && !parserFileNames.isEmpty()) {
+				grammarSet = new GrammarSet(lexerFileNames.remove(), parserFileNames.remove(), searchPaths);
+			}
+			if (grammarSet != null) {
+				grammarSet.setStartRules(startRule);
+				grammarSets.add(grammarSet);
+			}
+		}
+
+		return lexerFileNames.isEmpty() && parserFileNames.isEmpty();
+	}
+
+	/**
+	Add the grammar sets listed in a manifest file, one per line, each line 
+	consisting of the same options used to specify a grammar set on the 
+	command line, e.g.
+
+	<code>-lexerGrammar CobolLexer.g4 -parserGrammar CobolParser.g4 -path ./</code>
+
+	A line without a path option uses the paths given on the command line.
+	Blank lines and lines beginning with # are ignored.
+	*/
+	private static void readManifest(String manifestFileName) {
+		List<String> lines = null;
+		try {
+			lines = Files.readAllLines(Paths.get(manifestFileName), StandardCharsets.UTF_8);
+		} catch(IOException e) {
+			System.err.println("Error reading manifest " + manifestFileName + " " + e);
+			System.exit(12);
+		}
+
+		for (int i = 0; i < lines.size(); i++) {
+			String s = lines.get(i).trim();
+			if (s.isEmpty() || s.startsWith("#")) {
+				continue;
+			}
+			ArrayList<GrammarSet> lineGrammarSets = null;
+			try {
+				lineGrammarSets = parseGrammarSets(s);
+			} catch(ParseException exp) {
+				System.err.println(manifestFileName + " line " + (i + 1) + " parsing failed.  Reason: " + exp.getMessage());
+				System.exit(16);
+			}
+			if (lineGrammarSets == null) {
+				System.err.println(manifestFileName + " line " + (i + 1) 
+					+ " please specify either a combinedGrammar or both a lexerGrammar and parserGrammar");
+				System.exit(4);
+			}
+			grammarSets.addAll(lineGrammarSets);
+		}
+	}
+
+	/**
+	Return the grammar sets specified by a manifest line or a request to the
+	server, or null if there are none or a lexerGrammar is not paired with a
+	parserGrammar.  The paths given on the command line are used if the line
+	has no path option.
+	*/
+	private static ArrayList<GrammarSet> parseGrammarSets(String s) throws ParseException {
+		Options options = new Options();
+		CommandLineParser parser = new DefaultParser();
+		options.addOption(new Option("lexerGrammar", true, null));
+		options.addOption(new Option("parserGrammar", true, null));
+		options.addOption(new Option("combinedGrammar", true, null));
+		options.addOption(new Option("path", true, null));
+		options.addOption(new Option("startRule", true, null));
+
+		CommandLine line = parser.parse(options, s.trim().split("\\s+"));
+		ArrayList<GrammarSet> lineGrammarSets = new ArrayList<>();
+		List<String> lineSearchPaths = line.hasOption("path") ? Arrays.asList(line.getOptionValues("path")) : searchPaths;
+		if (!addGrammarSets(line, lineSearchPaths, line.getOptionValue("startRule", startRule), lineGrammarSets) 
+				|| lineGrammarSets.isEmpty()) {
+			return null;
+		}
+		return lineGrammarSets;
+	}
+}
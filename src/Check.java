@@ -0,0 +1,70 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+A check of the definitions collected from a grammar set, e.g. that every
+Lexer Token is referenced by some rule.
+
+A check says which kinds of definition it examines and the CheckEngine 
+gives it each definition of those kinds, along with the definitions of the
+same kind given to every other check, in a single pass over what was 
+collected, so adding a check does not add a pass.  What a check finds it 
+reports to the CheckContext, which also provides the ReferenceIndex and 
+everything else collected.
+
+A new instance of each check is created for each grammar set, so a check
+may keep what it has seen in its fields and report it once 
+<code>finish</code> is called.  Grammar sets may be checked in parallel,
+so a check must not share anything else among instances.
+
+Checks besides those built in may be provided by a jar on the class path
+listing their classes, each public with a public no argument constructor,
+in <code>META-INF/services/Check</code>, to be loaded by ServiceLoader.
+Their findings are in categories of their own, the related text of each,
+if any, following the category and name in its message.
+*/
+public interface Check {
+	String LEXER_TOKEN = "lexerToken";
+	String LEXER_CHANNEL = "lexerChannel";
+	String TOKENS_SPEC_TOKEN = "tokensSpecToken";
+	String MODE_SPEC = "modeSpec";
+	String LEXER_RULE = "lexerRule";
+	String LEXER_FRAGMENT = "lexerFragment";
+	String PARSER_RULE = "parserRule";
+
+	/**
+	The kinds of definition this check examines, any of the constants of 
+	this interface.  Others are ignored.
+	*/
+	Set<String> getKinds();
+
+	/**
+	Examine one definition of one of this check's kinds.  Definitions are 
+	given in the order the kinds are declared in this interface, and those
+	of each kind in the order they were collected.
+	*/
+	void check(String kind, String name, CheckContext context);
+
+	/**
+	Called once every definition of this check's kinds has been given to 
+	<code>check</code>, before definitions of later kinds are visited, so 
+	what it found may be reported while other checks are still running.
+	*/
+	default void finish(CheckContext context) {
+	}
+
+}
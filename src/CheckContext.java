@@ -0,0 +1,131 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+What the checks run over a grammar set are given, the grammar set and what
+was collected from it, and what they found, kept by category in the order
+each category was first found.
+*/
+public class CheckContext {
+	private GrammarSet grammarSet = null;
+	private GrammarListener listener = null;
+	private Boolean verbose = false;
+	private LinkedHashMap<String, ArrayList<Finding>> findings = new LinkedHashMap<>();
+	private HashMap<Finding, Location> locations = new HashMap<>();
+	private LinkedHashMap<String, ArrayList<String>> notes = new LinkedHashMap<>();
+
+	public CheckContext(GrammarSet grammarSet, GrammarListener listener, Boolean verbose) {
+		super();
+		this.grammarSet = grammarSet;
+		this.listener = listener;
+		this.verbose = verbose;
+	}
+
+	public GrammarSet getGrammarSet() {
+		return this.grammarSet;
+	}
+
+	/**
+	Everything collected from the grammar set, including the definitions 
+	given to the checks and where each is defined.
+	*/
+	public GrammarListener getListener() {
+		return this.listener;
+	}
+
+	public ReferenceIndex getReferenceIndex() {
+		return this.listener.getReferenceIndex();
+	}
+
+	/**
+	Whether checks should print what they are doing.
+	*/
+	public Boolean isVerbose() {
+		return this.verbose;
+	}
+
+	/**
+	Note what a check is doing with a definition of the indicated kind, if
+	checks should print what they are doing.  Notes are kept by kind, to be
+	printed with the report of that kind rather than as the checks run.
+	*/
+	public synchronized void note(String kind, String note) {
+		if (this.verbose) {
+			this.notes.computeIfAbsent(kind, k -> new ArrayList<>()).add(note);
+		}
+	}
+
+	/**
+	The notes made about definitions of the indicated kind, in the order 
+	they were made.
+	*/
+	public synchronized ArrayList<String> getNotes(String kind) {
+		return new ArrayList<>(this.notes.getOrDefault(kind, new ArrayList<>()));
+	}
+
+	/**
+	Report a finding, located where the grammar listener recorded its
+	definition, if it did.
+	*/
+	public void found(Finding finding) {
+		this.found(finding, this.listener.getDefinition(finding));
+	}
+
+	/**
+	Report a finding at the indicated location, which may be null.  A finding
+	already reported is ignored.
+	*/
+	public synchronized void found(Finding finding, Location location) {
+		if (this.locations.containsKey(finding)) {
+			return;
+		}
+		this.findings.computeIfAbsent(finding.getCategory(), k -> new ArrayList<>()).add(finding);
+		this.locations.put(finding, location);
+	}
+
+	/**
+	The categories of the findings reported, in the order each was first 
+	reported.
+	*/
+	public synchronized ArrayList<String> getCategories() {
+		return new ArrayList<>(this.findings.keySet());
+	}
+
+	/**
+	The findings reported in the indicated category, in the order they were
+	reported.
+	*/
+	public synchronized ArrayList<Finding> getFindings(String category) {
+		return new ArrayList<>(this.findings.getOrDefault(category, new ArrayList<>()));
+	}
+
+	/**
+	The names of the findings reported in the indicated category.
+	*/
+	public ArrayList<String> getNames(String category) {
+		ArrayList<String> names = new ArrayList<>();
+		for (Finding f: this.getFindings(category)) {
+			names.add(f.getName());
+		}
+		return names;
+	}
+
+	public synchronized Location getLocation(Finding finding) {
+		return this.locations.get(finding);
+	}
+
+}
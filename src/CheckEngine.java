@@ -0,0 +1,149 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+Runs checks over the definitions collected from a grammar set in a single 
+pass.  Each check registers for the kinds of definition it examines, and
+each definition of a kind any check registered for is visited once and 
+given to every check registered for that kind.  Kinds no check registered
+for are not visited at all.
+
+The checks are registered as suppliers, a new instance of each being
+created for each grammar set, so one engine may run over grammar sets in
+parallel.
+*/
+public class CheckEngine {
+	/**
+	The kinds of definition, in the order they are visited.
+	*/
+	public static final List<String> KINDS = List.of(
+		Check.LEXER_TOKEN
+		, Check.LEXER_CHANNEL
+		, Check.TOKENS_SPEC_TOKEN
+		, Check.MODE_SPEC
+		, Check.LEXER_RULE
+		, Check.LEXER_FRAGMENT
+		, Check.PARSER_RULE);
+
+	private ArrayList<Supplier<Check>> checks = new ArrayList<>();
+
+	public CheckEngine() {
+		super();
+	}
+
+	/**
+	An engine with the checks built in, those searching for unreferenced 
+	tokens, channels, tokensSpec tokens, and modeSpecs.
+	*/
+	public static CheckEngine builtIn() {
+		CheckEngine engine = new CheckEngine();
+		engine.register(() -> new FallenLeafCheck(Check.LEXER_TOKEN));
+		engine.register(() -> new FallenLeafCheck(Check.LEXER_CHANNEL));
+		engine.register(() -> new FallenLeafCheck(Check.TOKENS_SPEC_TOKEN));
+		engine.register(() -> new FallenLeafCheck(Check.MODE_SPEC));
+		return engine;
+	}
+
+	public void register(Supplier<Check> check) {
+		this.checks.add(check);
+	}
+
+	/**
+	Register each check provided to ServiceLoader through the class loader,
+	returning the names of their classes.  A provider which cannot be 
+	loaded throws a ServiceConfigurationError.
+	*/
+	public ArrayList<String> registerServices(ClassLoader loader) {
+		ArrayList<String> names = new ArrayList<>();
+		for (ServiceLoader.Provider<Check> provider: ServiceLoader.load(Check.class, loader).stream().toList()) {
+			this.register(provider::get);
+			names.add(provider.type().getName());
+		}
+		return names;
+	}
+
+	/**
+	The number of checks registered.
+	*/
+	public int size() {
+		return this.checks.size();
+	}
+
+	/**
+	Create each check and give it the definitions of the kinds it registered
+	for, kind by kind, letting each finish once the last of its kinds has 
+	been visited.  What they find is kept in the context.
+	*/
+	public void run(CheckContext context) {
+		this.run(context, kind -> {});
+	}
+
+	/**
+	As <code>run(context)</code>, also calling kindChecked with each kind 
+	once every check registered for it has finished, so what was found of
+	that kind can be reported while later kinds are still being visited.
+	*/
+	public void run(CheckContext context, Consumer<String> kindChecked) {
+		HashMap<String, ArrayList<Check>> byKind = new HashMap<>();
+		HashMap<String, ArrayList<Check>> finishedBy = new HashMap<>();
+		for (Supplier<Check> supplier: this.checks) {
+			Check check = supplier.get();
+			String lastKind = KINDS.get(0);
+			for (String kind: check.getKinds()) {
+				byKind.computeIfAbsent(kind, k -> new ArrayList<>()).add(check);
+				if (KINDS.indexOf(kind) > KINDS.indexOf(lastKind)) {
+					lastKind = kind;
+				}
+			}
+			finishedBy.computeIfAbsent(lastKind, k -> new ArrayList<>()).add(check);
+		}
+
+		for (String kind: KINDS) {
+			ArrayList<Check> registered = byKind.get(kind);
+			if (registered != null) {
+				for (String name: definitions(context.getListener(), kind)) {
+					for (Check check: registered) {
+						check.check(kind, name, context);
+					}
+				}
+			}
+			for (Check check: finishedBy.getOrDefault(kind, new ArrayList<>())) {
+				check.finish(context);
+			}
+			kindChecked.accept(kind);
+		}
+	}
+
+	/**
+	The names of the definitions of the indicated kind, in the order they 
+	were collected.
+	*/
+	private static ArrayList<String> definitions(GrammarListener listener, String kind) {
+		switch (kind) {
+			case Check.LEXER_TOKEN: return listener.getLexerTokens();
+			case Check.LEXER_CHANNEL: return listener.getLexerChannels();
+			case Check.TOKENS_SPEC_TOKEN: return listener.getLexerTokensSpecTokens();
+			case Check.MODE_SPEC: return listener.getModeSpecs();
+			case Check.LEXER_RULE: return listener.getLexerRuleNames();
+			case Check.LEXER_FRAGMENT: return listener.getLexerFragmentNames();
+			case Check.PARSER_RULE: return listener.getParserRuleNames();
+			default: return new ArrayList<>();
+		}
+	}
+
+}
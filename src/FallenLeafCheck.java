@@ -0,0 +1,80 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+Finds definitions nothing refers to, which are potential cruft: Lexer 
+Tokens no lexer or parser rule refers to, channels specified in a 
+<code>prequelConstruct</code> but never used in a <code>lexerCommand</code>,
+tokens specified in a <code>tokensSpec</code> but never the target of a
+<code>->type()</code> command, and modes specified in a 
+<code>modeSpec</code> but never entered by a <code>->mode()</code>, 
+<code>->pushMode()</code>, or <code>->popMode()</code> command.
+
+Each kind is checked by its own instance, as the built in checks are 
+registered with the CheckEngine.
+*/
+public class FallenLeafCheck implements Check {
+	private String kind = null;
+	private String category = null;
+
+	public FallenLeafCheck(String kind) {
+		super();
+		this.kind = kind;
+		switch (kind) {
+			case LEXER_TOKEN: this.category = Finding.TOKEN; break;
+			case LEXER_CHANNEL: this.category = Finding.CHANNEL; break;
+			case TOKENS_SPEC_TOKEN: this.category = Finding.TOKENS_SPEC_TOKEN; break;
+			case MODE_SPEC: this.category = Finding.MODE_SPEC; break;
+			default: throw new IllegalArgumentException("no fallen leaf check of " + kind);
+		}
+	}
+
+	@Override public Set<String> getKinds() {
+		return Set.of(this.kind);
+	}
+
+	@Override public void check(String kind, String name, CheckContext context) {
+		ReferenceIndex referenceIndex = context.getReferenceIndex();
+		context.note(kind, "searching for " + name);
+		String ruleName = null;
+		String ruleKind = "lexer rule";
+		switch (kind) {
+			case LEXER_TOKEN:
+				ruleName = referenceIndex.firstLexerRuleReferencing(name);
+				if (ruleName == null) {
+					ruleName = referenceIndex.firstParserRuleReferencing(name);
+					ruleKind = "parser rule";
+				}
+				break;
+			case LEXER_CHANNEL:
+				ruleName = referenceIndex.firstRuleReferencingChannel(name);
+				break;
+			case TOKENS_SPEC_TOKEN:
+				ruleName = referenceIndex.firstRuleReferencingType(name);
+				break;
+			case MODE_SPEC:
+				ruleName = referenceIndex.firstRuleReferencingMode(name);
+				break;
+		}
+		if (ruleName != null) {
+			context.note(kind, "\tfound in " + ruleKind + " " + ruleName);
+		} else {
+			context.found(new Finding(this.category, name));
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+Something found which may be cruft, e.g. a Lexer Token with no rule
+referencing it.  Two findings are equal if they are in the same category
+and have the same name, so findings from successive runs can be compared.
+*/
+public class Finding {
+	public static final String TOKEN = "Lexer Token";
+	public static final String CHANNEL = "Lexer Channel";
+	public static final String TOKENS_SPEC_TOKEN = "Lexer tokensSpec Token";
+	public static final String MODE_SPEC = "Lexer modeSpec";
+	public static final String UNREACHABLE_PARSER_RULE = "Unreachable Parser Rule";
+	public static final String UNREACHABLE_FRAGMENT = "Unreachable Lexer fragment";
+	public static final String UNREACHABLE_MODE_SPEC = "Unreachable Lexer modeSpec";
+	public static final String DUPLICATE_LEXER_RULE = "Duplicate Lexer Rule";
+	public static final String DUPLICATE_LEXER_RULE_ELSEWHERE = "Lexer Rule Duplicated in Another Grammar";
+	public static final String SHADOWED_TOKEN = "Shadowed Lexer Token";
+	public static final String MANY_KEYWORDS = "Lexer mode with Many Keywords";
+	public static final String KEYWORD_ALTERNATION = "Lexer Rule with Keyword Alternatives";
+	public static final String NON_GREEDY_LOOP = "Lexer Rule with Unbounded Non-greedy Loop";
+	public static final String OVERLAPPING_SETS = "Lexer Rule with Overlapping Sets";
+
+	private String category = null;
+	private String name = null;
+	private String related = null;
+
+	public Finding(String category, String name) {
+		super();
+		this.category = category;
+		this.name = name;
+	}
+
+	/**
+	A finding related to something else, e.g. a rule with the same body as
+	another.  What it is related to is part of the message but not of the
+	finding's identity.
+	*/
+	public Finding(String category, String name, String related) {
+		this(category, name);
+		this.related = related;
+	}
+
+	public String getCategory() {
+		return this.category;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getRelated() {
+		return this.related;
+	}
+
+	/**
+	A short stable identifier for the category, for machine readable output.
+	*/
+	public String getRuleId() {
+		switch(this.category) {
+			case TOKEN: return "unreferenced-token";
+			case CHANNEL: return "unreferenced-channel";
+			case TOKENS_SPEC_TOKEN: return "unreferenced-tokens-spec-token";
+			case MODE_SPEC: return "unreferenced-mode";
+			case UNREACHABLE_PARSER_RULE: return "unreachable-parser-rule";
+			case UNREACHABLE_FRAGMENT: return "unreachable-fragment";
+			case UNREACHABLE_MODE_SPEC: return "unreachable-mode";
+			case DUPLICATE_LEXER_RULE: return "duplicate-lexer-rule";
+			case DUPLICATE_LEXER_RULE_ELSEWHERE: return "duplicate-lexer-rule-across-grammars";
+			case SHADOWED_TOKEN: return "shadowed-token";
+			case MANY_KEYWORDS: return "many-keywords";
+			case KEYWORD_ALTERNATION: return "keyword-alternation";
+			case NON_GREEDY_LOOP: return "unbounded-non-greedy-loop";
+			case OVERLAPPING_SETS: return "overlapping-sets";
+			default: return this.category;
+		}
+	}
+
+	/**
+	A sentence describing the finding, worded as the text report's headings are.
+	*/
+	public String getMessage() {
+		switch(this.category) {
+			case UNREACHABLE_PARSER_RULE:
+			case UNREACHABLE_FRAGMENT:
+			case UNREACHABLE_MODE_SPEC:
+				return this.category.substring("Unreachable ".length()) + " " + this.name 
+					+ " is not reachable from " + this.reachableFrom();
+			case DUPLICATE_LEXER_RULE:
+			case DUPLICATE_LEXER_RULE_ELSEWHERE:
+				return "Lexer Rule " + this.name + " has the same body as " + this.related;
+			case SHADOWED_TOKEN:
+				return "Lexer Token " + this.name + " is never produced, " + this.related + " matching the same text";
+			case MANY_KEYWORDS:
+				return "Lexer mode " + this.name + " has " + this.related 
+					+ ", which an identifier rule and a table of keywords would replace";
+			case KEYWORD_ALTERNATION:
+				return "Lexer Rule " + this.name + " has " + this.related 
+					+ ", which an identifier rule and a table of keywords would replace";
+			case NON_GREEDY_LOOP:
+				return "Lexer Rule " + this.name + " has " + this.related 
+					+ ", what follows being tried at every character it matches";
+			case OVERLAPPING_SETS:
+				return "Lexer Rule " + this.name + " has " + this.related 
+					+ " whose alternatives begin with overlapping sets of characters";
+			case TOKEN:
+			case CHANNEL:
+			case TOKENS_SPEC_TOKEN:
+			case MODE_SPEC:
+				return this.toString() + " has " + this.unreferenced() + " referencing it";
+			default:
+				return this.related == null ? this.toString() : this.toString() + " " + this.related;
+		}
+	}
+
+	/**
+	What findings in this category are, e.g. for a list of rules.
+	*/
+	public String getDescription() {
+		switch(this.category) {
+			case UNREACHABLE_PARSER_RULE:
+			case UNREACHABLE_FRAGMENT:
+			case UNREACHABLE_MODE_SPEC:
+				return this.category.substring("Unreachable ".length()) + " not reachable from " + this.reachableFrom();
+			case DUPLICATE_LEXER_RULE:
+				return "Lexer Rule with the same body as an earlier rule in the same mode";
+			case DUPLICATE_LEXER_RULE_ELSEWHERE:
+				return "Lexer Rule with the same body as a rule in another grammar file";
+			case SHADOWED_TOKEN:
+				return "Lexer Token never produced, another rule matching the same text";
+			case MANY_KEYWORDS:
+				return "Lexer mode with many keyword tokens, which an identifier rule and a table of keywords would replace";
+			case KEYWORD_ALTERNATION:
+				return "Lexer Rule with many literal alternatives, which an identifier rule and a table of keywords would replace";
+			case NON_GREEDY_LOOP:
+				return "Lexer Rule with a non-greedy loop matching any character";
+			case OVERLAPPING_SETS:
+				return "Lexer Rule with a decision whose alternatives begin with overlapping sets of characters";
+			default:
+				return this.category + " with " + this.unreferenced() + " referencing it";
+		}
+	}
+
+	private String unreferenced() {
+		switch(this.category) {
+			case TOKENS_SPEC_TOKEN: return "no ->type() command";
+			case MODE_SPEC: return "no ->[push|pop]mode() command";
+			default: return "no rule";
+		}
+	}
+
+	private String reachableFrom() {
+		switch(this.category) {
+			case UNREACHABLE_PARSER_RULE: return "the start rule";
+			case UNREACHABLE_FRAGMENT: return "any referenced Lexer Token";
+			default: return ReferenceIndex.DEFAULT_MODE;
+		}
+	}
+
+	@Override public boolean equals(Object o) {
+		if (!(o instanceof Finding)) {
+			return false;
+		}
+		Finding other = (Finding)o;
+		return this.category.equals(other.category) && this.name.equals(other.name);
+	}
+
+	@Override public int hashCode() {
+		return this.category.hashCode() * 31 + this.name.hashCode();
+	}
+
+	@Override public String toString() {
+		return this.category + " " + this.name;
+	}
+
+}
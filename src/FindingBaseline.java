@@ -0,0 +1,144 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+Findings accepted for now, so a run need only report those which are new 
+and those which have been resolved.
+
+The file is text, its first line identifying the format and each of the
+rest a finding, its grammar set, category, and name separated by tabs, 
+sorted so successive versions of the file diff cleanly.  It is read into a 
+hash set of those lines per grammar set, so looking up a finding takes 
+the same time however many the baseline holds.
+
+A grammar set is identified by the key <code>key</code> returns for it,
+which the caller computes once per grammar set.
+*/
+public class FindingBaseline {
+	public static final String FORMAT = "AntlrLint baseline 1";
+	private HashMap<String, HashSet<String>> findings = new HashMap<>();
+
+	public FindingBaseline() {
+		super();
+	}
+
+	/**
+	Read a baseline written by <code>write</code>.
+	*/
+	public static FindingBaseline read(Path path) throws IOException {
+		FindingBaseline baseline = new FindingBaseline();
+		try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String format = in.readLine();
+			if (!FORMAT.equals(format)) {
+				throw new IOException(path + " is not an " + FORMAT + " file");
+			}
+			String line = null;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t", 3);
+				if (fields.length < 3) {
+					if (line.isEmpty()) {
+						continue;
+					}
+					throw new IOException(path + " has a malformed line " + line);
+				}
+				baseline.add(fields[0], new Finding(fields[1], fields[2]));
+			}
+		}
+		return baseline;
+	}
+
+	/**
+	Write the findings, sorted, replacing the file if it exists.
+	*/
+	public void write(Path path) throws IOException {
+		TreeSet<String> lines = new TreeSet<>();
+		for (Map.Entry<String, HashSet<String>> entry: this.findings.entrySet()) {
+			for (String s: entry.getValue()) {
+				lines.add(entry.getKey() + "\t" + s);
+			}
+		}
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			out.write(FORMAT);
+			out.newLine();
+			for (String s: lines) {
+				out.write(s);
+				out.newLine();
+			}
+		}
+	}
+
+	/**
+	Add a finding in the indicated grammar set, returning false if it was
+	already in the baseline.
+	*/
+	public Boolean add(String grammarSet, Finding finding) {
+		return this.findings.computeIfAbsent(grammarSet, k -> new HashSet<>()).add(key(finding));
+	}
+
+	public Boolean contains(String grammarSet, Finding finding) {
+		HashSet<String> keys = this.findings.get(grammarSet);
+		return keys != null && keys.contains(key(finding));
+	}
+
+	/**
+	The findings of the indicated grammar set in the baseline which are not 
+	among those found now, in order by category and name.
+	*/
+	public ArrayList<Finding> resolved(String grammarSet, Collection<Finding> found) {
+		ArrayList<Finding> resolved = new ArrayList<>();
+		HashSet<String> keys = this.findings.get(grammarSet);
+		if (keys == null) {
+			return resolved;
+		}
+		HashSet<String> foundKeys = new HashSet<>();
+		for (Finding f: found) {
+			foundKeys.add(key(f));
+		}
+		for (String s: new TreeSet<>(keys)) {
+			if (!foundKeys.contains(s)) {
+				String[] fields = s.split("\t", 2);
+				resolved.add(new Finding(fields[0], fields[1]));
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	The key identifying a grammar set in a baseline, its file names separated
+	by spaces, each normalized as ImportResolver does but relative to the 
+	working directory if it is under it.  So <code>testdata/X.g4</code> and 
+	<code>./testdata/X.g4</code> are the same file, and the baseline may be 
+	committed along with the grammars.
+	*/
+	public static String key(GrammarSet grammarSet) {
+		Path workingDirectory = ImportResolver.key("");
+		ArrayList<String> fileNames = new ArrayList<>();
+		for (String s: grammarSet.getGrammarFileNames()) {
+			Path path = ImportResolver.key(s);
+			fileNames.add((path.startsWith(workingDirectory) ? workingDirectory.relativize(path) : path).toString());
+		}
+		return String.join(" ", fileNames);
+	}
+
+	private static String key(Finding finding) {
+		return finding.getCategory() + "\t" + finding.getName();
+	}
+
+}
@@ -0,0 +1,96 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+
+/**
+Writes findings in a machine readable format as each is decided, rather
+than collecting them all first.  The output is buffered but flushed after
+each finding, so a consumer reading it sees each finding when it is written.
+
+Call <code>begin()</code> once before the first finding and <code>end()</code>
+once after the last, which may be after findings from several grammar sets.
+Grammar sets linted at the same time may write findings from different
+threads, so <code>write</code> is synchronized in each format.
+*/
+public abstract class FindingWriter {
+	public static final String TEXT = "text";
+	public static final String JSON_LINES = "jsonl";
+	public static final String SARIF = "sarif";
+
+	protected PrintStream out = null;
+
+	protected FindingWriter(PrintStream out) {
+		super();
+		this.out = out;
+	}
+
+	/**
+	Return a FindingWriter for the indicated format writing to out, or null for
+	the text format, which is written by AntlrLint itself.
+	*/
+	public static FindingWriter of(String format, PrintStream out) {
+		switch(format) {
+			case JSON_LINES: return new JsonLinesFindingWriter(out);
+			case SARIF: return new SarifFindingWriter(out);
+			default: return null;
+		}
+	}
+
+	public static Boolean isFormat(String format) {
+		return format.equals(TEXT) || format.equals(JSON_LINES) || format.equals(SARIF);
+	}
+
+	public void begin() {
+	}
+
+	/**
+	Write a finding, and where the thing it is about is defined, which may be
+	null if that is not known.
+	*/
+	public abstract void write(Finding finding, Location location);
+
+	public void end() {
+		this.out.flush();
+	}
+
+	/**
+	Return s as a JSON string, including the enclosing quotes.
+	*/
+	protected static String quote(String s) {
+		StringBuilder sb = new StringBuilder(s.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch(c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int)c));
+					} else {
+						sb.append(c);
+					}
+					break;
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,147 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+
+/**
+A directory of the facts collected by GrammarListener for each grammar file,
+keyed by a SHA-256 hash of the file's content.  A grammar file which has not
+changed since it was last processed need not be lexed, parsed, or walked.
+
+Each entry is a text file named for the hash.  The first line identifies
+the format, the second the prediction mode the file needed to be parsed,
+and the rest are as written by <code>GrammarListener.writeFacts</code>.
+An entry in an older format, or which did not collect everything the 
+LoadedGrammar's listener is to collect, is treated as missing and replaced.
+A file with syntax errors is not cached, so they are reported on every run.
+
+Failure to read or write an entry is reported in the LoadedGrammar's 
+progress messages, so it appears in order with that file's other messages.
+*/
+public class GrammarCache {
+	public static final String FORMAT = "AntlrLint grammar cache 8";
+	public static final String SUFFIX = ".facts";
+	private Path directory = null;
+
+	public GrammarCache(Path directory) {
+		super();
+		this.directory = directory;
+	}
+
+	/**
+	Return the hexadecimal SHA-256 hash of the provided grammar file content.
+	*/
+	public static String hash(byte[] content) {
+		return hash(ByteBuffer.wrap(content));
+	}
+
+	/**
+	Return the hexadecimal SHA-256 hash of the grammar file content remaining
+	in the buffer, e.g. a mapped file, without changing its position.
+	*/
+	public static String hash(ByteBuffer content) {
+		MessageDigest md = null;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			//every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+		md.update(content.duplicate());
+		StringBuilder sb = new StringBuilder();
+		for (byte b: md.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	/**
+	Load the entry for the indicated hash into the LoadedGrammar.  Returns false
+	if there is no usable entry, in which case the LoadedGrammar is unchanged.
+	*/
+	public Boolean load(String hash, LoadedGrammar loaded) {
+		Path entry = this.directory.resolve(hash + SUFFIX);
+		if (!Files.isRegularFile(entry)) {
+			return false;
+		}
+
+		try (BufferedReader in = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+			if (!FORMAT.equals(in.readLine())) {
+				return false;
+			}
+			String predictionMode = in.readLine();
+			GrammarListener listener = GrammarListener.readFacts(in, loaded.getFileName());
+			if (predictionMode == null || listener == null || !listener.collectsAll(loaded.getListener())) {
+				return false;
+			}
+			loaded.setPredictionMode(predictionMode);
+			loaded.setListener(listener);
+		} catch(IOException e) {
+			loaded.getProgress().println("Error reading cache entry " + entry + " " + e);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	Write an entry for the indicated hash from the LoadedGrammar.  The entry is
+	written to a temporary file and then moved into place, so concurrent runs
+	never see a partial entry.  Failure to write is reported but not fatal.
+	*/
+	public void store(String hash, LoadedGrammar loaded) {
+		Path entry = this.directory.resolve(hash + SUFFIX);
+		Path temp = null;
+		try {
+			Files.createDirectories(this.directory);
+			temp = Files.createTempFile(this.directory, hash, ".tmp");
+			try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+				out.println(FORMAT);
+				out.println(loaded.getPredictionMode());
+				loaded.getListener().writeFacts(out);
+			}
+			Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			loaded.getProgress().println("Error writing cache entry " + entry + " " + e);
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch(IOException e2) {
+					//nothing more to be done
+				}
+			}
+		}
+	}
+
+	/**
+	Delete all entries.
+	*/
+	public void purge() throws IOException {
+		if (!Files.isDirectory(this.directory)) {
+			return;
+		}
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory, "*" + SUFFIX)) {
+			for (Path entry: entries) {
+				Files.deleteIfExists(entry);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import org.antlr.v4.runtime.*;
+
+/**
+What the start of a grammar file declares: whether it is a lexer, parser,
+or combined grammar, its name, the grammars it imports, and its
+<code>tokenVocab</code> option if any.
+
+Only the tokens up to the first rule are lexed, the grammar is not parsed,
+so a file can be classified without the cost of loading it.
+*/
+public class GrammarDecl {
+	public static final String LEXER = "lexer";
+	public static final String PARSER = "parser";
+	public static final String COMBINED = "combined";
+
+	private String fileName = null;
+	private String type = COMBINED;
+	private String name = null;
+	private String tokenVocab = null;
+	private ArrayList<String> imports = new ArrayList<>();
+
+	private GrammarDecl(String fileName) {
+		super();
+		this.fileName = fileName;
+	}
+
+	/**
+	Lex the indicated file up to its first rule.  Returns null if the file
+	does not begin with a <code>grammarDecl</code>.
+	*/
+	public static GrammarDecl read(String fileName) throws IOException {
+		GrammarDecl decl = new GrammarDecl(fileName);
+		ANTLRv4Lexer lexer = new ANTLRv4Lexer(MappedCharStream.fromBuffer(MappedCharStream.map(Paths.get(fileName)), fileName));
+		lexer.removeErrorListeners();
+
+		Token t = next(lexer);
+		if (t.getType() == ANTLRv4Lexer.LEXER) {
+			decl.type = LEXER;
+			t = next(lexer);
+		} else if (t.getType() == ANTLRv4Lexer.PARSER) {
+			decl.type = PARSER;
+			t = next(lexer);
+		}
+		if (t.getType() != ANTLRv4Lexer.GRAMMAR) {
+			return null;
+		}
+		t = next(lexer);
+		if (t.getType() != ANTLRv4Lexer.TOKEN_REF && t.getType() != ANTLRv4Lexer.RULE_REF) {
+			return null;
+		}
+		decl.name = t.getText();
+
+		/*
+		The prequelConstructs, which end where the first rule or mode begins.
+		*/
+		while (true) {
+			t = next(lexer);
+			switch(t.getType()) {
+				case ANTLRv4Lexer.SEMI:
+					break;
+				case ANTLRv4Lexer.OPTIONS:
+					decl.readOptions(lexer);
+					break;
+				case ANTLRv4Lexer.IMPORT:
+					decl.readImports(lexer);
+					break;
+				case ANTLRv4Lexer.TOKENS:
+				case ANTLRv4Lexer.CHANNELS:
+					skipPast(lexer, ANTLRv4Lexer.RBRACE);
+					break;
+				case ANTLRv4Lexer.AT:
+					skipPast(lexer, ANTLRv4Lexer.END_ACTION);
+					break;
+				default:
+					return decl;
+			}
+		}
+	}
+
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	/**
+	One of LEXER, PARSER, or COMBINED.
+	*/
+	public String getType() {
+		return this.type;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	The value of the <code>tokenVocab</code> option, or null if there is none.
+	*/
+	public String getTokenVocab() {
+		return this.tokenVocab;
+	}
+
+	/**
+	The names of the grammars imported.
+	*/
+	public ArrayList<String> getImports() {
+		return this.imports;
+	}
+
+	@Override public String toString() {
+		return this.type + " grammar " + this.name + " " + this.fileName;
+	}
+
+	/**
+	The options of the grammar, up to the <code>RBRACE</code> ending them.  
+	The value of <code>tokenVocab</code> may be qualified, e.g. 
+	<code>tokenVocab=a.b.CobolLexer;</code> so its tokens are joined.
+	*/
+	private void readOptions(ANTLRv4Lexer lexer) {
+		Token t = next(lexer);
+		while (t.getType() != ANTLRv4Lexer.RBRACE && t.getType() != Token.EOF) {
+			if (t.getText().equals("tokenVocab") && (t = next(lexer)).getType() == ANTLRv4Lexer.ASSIGN) {
+				StringBuilder sb = new StringBuilder();
+				t = next(lexer);
+				while (t.getType() != ANTLRv4Lexer.SEMI && t.getType() != ANTLRv4Lexer.RBRACE && t.getType() != Token.EOF) {
+					sb.append(t.getText());
+					t = next(lexer);
+				}
+				this.tokenVocab = sb.toString();
+				continue;
+			}
+			t = next(lexer);
+		}
+	}
+
+	/**
+	The grammars imported, up to the <code>SEMI</code> ending them.  Of
+	<code>import A = B;</code> B is the grammar imported.
+	*/
+	private void readImports(ANTLRv4Lexer lexer) {
+		Token t = next(lexer);
+		while (t.getType() != ANTLRv4Lexer.SEMI && t.getType() != Token.EOF) {
+			if (t.getType() == ANTLRv4Lexer.ASSIGN) {
+				this.imports.remove(this.imports.size() - 1);
+			} else if (t.getType() != ANTLRv4Lexer.COMMA) {
+				this.imports.add(t.getText());
+			}
+			t = next(lexer);
+		}
+	}
+
+	private static void skipPast(ANTLRv4Lexer lexer, int type) {
+		Token t = next(lexer);
+		while (t.getType() != type && t.getType() != Token.EOF) {
+			t = next(lexer);
+		}
+	}
+
+	/**
+	The next token on the default channel.
+	*/
+	private static Token next(ANTLRv4Lexer lexer) {
+		Token t = lexer.nextToken();
+		while (t.getChannel() != Token.DEFAULT_CHANNEL && t.getType() != Token.EOF) {
+			t = lexer.nextToken();
+		}
+		return t;
+	}
+
+}
@@ -0,0 +1,145 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+Finds the grammar sets in a directory tree by classifying each 
+<code>.g4</code> file in it by its <code>grammarDecl</code>.
+
+Each parser grammar is paired with the lexer grammar its 
+<code>tokenVocab</code> option names, preferring one in the same directory
+if several lexer grammars have that name.  Every other combined grammar,
+parser grammar, and lexer grammar is a set by itself, except grammars 
+imported by another grammar in the tree, which are linted as part of the
+sets importing them.
+*/
+public class GrammarDirectory {
+	private Path directory = null;
+	private ArrayList<GrammarDecl> decls = new ArrayList<>();
+
+	public GrammarDirectory(Path directory) {
+		super();
+		this.directory = directory;
+	}
+
+	/**
+	Find and classify the grammar files, in order by file name, each on the 
+	indicated executor.  Files which do not begin with a 
+	<code>grammarDecl</code> or cannot be read are reported and skipped.
+	*/
+	public void scan(ExecutorService executor) throws IOException, InterruptedException {
+		ArrayList<String> fileNames = null;
+		try (Stream<Path> paths = Files.walk(this.directory)) {
+			fileNames = paths
+				.filter(p -> p.getFileName().toString().endsWith(".g4") && Files.isRegularFile(p))
+				.map(p -> p.toString())
+				.sorted()
+				.collect(Collectors.toCollection(ArrayList::new));
+		}
+
+		ArrayList<Future<GrammarDecl>> futures = new ArrayList<>();
+		for (String fileName: fileNames) {
+			futures.add(executor.submit(() -> GrammarDecl.read(fileName)));
+		}
+		for (int i = 0; i < fileNames.size(); i++) {
+			try {
+				GrammarDecl decl = futures.get(i).get();
+				if (decl == null) {
+					System.err.println(fileNames.get(i) + " does not begin with a grammar declaration, skipped");
+				} else {
+					this.decls.add(decl);
+				}
+			} catch(ExecutionException e) {
+				System.err.println("Error reading " + fileNames.get(i) + " " + e.getCause() + ", skipped");
+			}
+		}
+	}
+
+	/**
+	The grammar files found, in order by file name.
+	*/
+	public ArrayList<GrammarDecl> getGrammarDecls() {
+		return this.decls;
+	}
+
+	/**
+	Return the grammar sets found, ordered by the file name of their
+	parser or combined grammar, or of the lexer grammar of a set by itself.
+	*/
+	public ArrayList<GrammarSet> grammarSets(List<String> searchPaths, String startRule) {
+		HashMap<String, ArrayList<GrammarDecl>> lexersByName = new HashMap<>();
+		HashSet<String> imported = new HashSet<>();
+		for (GrammarDecl decl: this.decls) {
+			if (decl.getType().equals(GrammarDecl.LEXER)) {
+				lexersByName.computeIfAbsent(decl.getName(), k -> new ArrayList<>()).add(decl);
+			}
+			imported.addAll(decl.getImports());
+		}
+
+		HashSet<GrammarDecl> paired = new HashSet<>();
+		TreeMap<String, GrammarSet> sets = new TreeMap<>();
+		for (GrammarDecl decl: this.decls) {
+			if (decl.getType().equals(GrammarDecl.LEXER) || imported.contains(decl.getName())) {
+				continue;
+			}
+			GrammarDecl lexer = decl.getType().equals(GrammarDecl.PARSER) ? this.lexerFor(decl, lexersByName) : null;
+			if (lexer == null) {
+				sets.put(decl.getFileName(), new GrammarSet(decl.getFileName(), searchPaths));
+			} else {
+				paired.add(lexer);
+				sets.put(decl.getFileName(), new GrammarSet(lexer.getFileName(), decl.getFileName(), searchPaths));
+			}
+		}
+		for (GrammarDecl decl: this.decls) {
+			if (decl.getType().equals(GrammarDecl.LEXER) && !paired.contains(decl) && !imported.contains(decl.getName())) {
+				sets.put(decl.getFileName(), new GrammarSet(decl.getFileName(), searchPaths));
+			}
+		}
+
+		ArrayList<GrammarSet> grammarSets = new ArrayList<>(sets.values());
+		for (GrammarSet grammarSet: grammarSets) {
+			grammarSet.setStartRules(startRule);
+		}
+		return grammarSets;
+	}
+
+	/**
+	The lexer grammar named by the <code>tokenVocab</code> of a parser 
+	grammar, or null if there is none in the tree.
+	*/
+	private GrammarDecl lexerFor(GrammarDecl parser, Map<String, ArrayList<GrammarDecl>> lexersByName) {
+		if (parser.getTokenVocab() == null) {
+			return null;
+		}
+		String name = Paths.get(parser.getTokenVocab()).getFileName().toString();
+		ArrayList<GrammarDecl> lexers = lexersByName.get(name);
+		if (lexers == null) {
+			return null;
+		}
+		Path parent = Paths.get(parser.getFileName()).getParent();
+		for (GrammarDecl lexer: lexers) {
+			if (Objects.equals(Paths.get(lexer.getFileName()).getParent(), parent)) {
+				return lexer;
+			}
+		}
+		return lexers.get(0);
+	}
+
+}
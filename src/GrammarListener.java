@@ -15,43 +15,126 @@
  */
 
 import java.util.*;
+import java.io.*;
 import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.*;
 
 /**
 Collect Lexer rules, Parser rules, and Lexer Tokens of interest.
+
+Only names are kept, each a single copy from the SymbolTable, so the parse
+tree can be discarded as soon as it has been walked.
 */
 
 public class GrammarListener extends ANTLRv4ParserBaseListener {
+	private SymbolTable symbols = new SymbolTable();
 	private ArrayList<String> lexerTokens = new ArrayList<>();
+	private HashSet<String> lexerTokenSet = new HashSet<>();
 	private ArrayList<String> lexerChannels = new ArrayList<>();
+	private HashSet<String> lexerChannelSet = new HashSet<>();
 	private ArrayList<String> lexerTokensSpecTokens = new ArrayList<>();
 	private ArrayList<String> delegateGrammars = new ArrayList<>();
+	private ArrayList<String> tokenVocabs = new ArrayList<>();
 	private ArrayList<String> modeSpecs = new ArrayList<>();
-	private ArrayList<ANTLRv4Parser.LexerRuleSpecContext> lexerRules = new ArrayList<>();
-	private ArrayList<ANTLRv4Parser.ParserRuleSpecContext> parserRules = new ArrayList<>();
+	private ArrayList<String> lexerRuleNames = new ArrayList<>();
+	private ArrayList<String> lexerFragmentNames = new ArrayList<>();
+	private ArrayList<String> parserRuleNames = new ArrayList<>();
+	private ReferenceIndex referenceIndex = new ReferenceIndex(symbols);
+	private HashMap<Finding, Location> definitions = new HashMap<>();
+	private LinkedHashMap<String, String[]> lexerRuleShapes = new LinkedHashMap<>();
+	private LinkedHashMap<String, String[]> lexerRuleCosts = new LinkedHashMap<>();
+	private String parserRuleName = null;
+	private Boolean collectLexerRuleShapes = false;
+	private Boolean collectLexerRuleCosts = false;
 
 	public GrammarListener(
 		) {
 		super();
 	}
 
+	/**
+	Whether the canonical form of each lexer rule's body is collected, for 
+	finding lexer rules with the same body.  It is not by default, as it
+	takes a walk of every lexer rule's body.
+	*/
+	public void setCollectLexerRuleShapes(Boolean collectLexerRuleShapes) {
+		this.collectLexerRuleShapes = collectLexerRuleShapes;
+	}
+
+	public Boolean collectsLexerRuleShapes() {
+		return this.collectLexerRuleShapes;
+	}
+
+	/**
+	Whether the estimated cost of each lexer rule is collected, for finding 
+	costly lexer constructs.  It is not by default.
+	*/
+	public void setCollectLexerRuleCosts(Boolean collectLexerRuleCosts) {
+		this.collectLexerRuleCosts = collectLexerRuleCosts;
+	}
+
+	public Boolean collectsLexerRuleCosts() {
+		return this.collectLexerRuleCosts;
+	}
+
+	/**
+	Collect what the other listener collects beyond the names and references
+	always collected.
+	*/
+	public void collectSameAs(GrammarListener other) {
+		this.collectLexerRuleShapes = other.collectLexerRuleShapes;
+		this.collectLexerRuleCosts = other.collectLexerRuleCosts;
+	}
+
+	/**
+	Whether this listener collected at least what the other collects.
+	*/
+	public Boolean collectsAll(GrammarListener other) {
+		return (this.collectLexerRuleShapes || !other.collectLexerRuleShapes)
+			&& (this.collectLexerRuleCosts || !other.collectLexerRuleCosts);
+	}
+
 	/**
 	Collect Lexer rules, and Lexer Tokens of interest.
 	
 	Tokens of interest do not have any action blocks or lexer commands
 	associated with them, except for the "type" command for which we
 	collect the type being emitted.
+
+	Everything this rule refers to is recorded in the ReferenceIndex.
 	*/
 	@Override public void enterLexerRuleSpec(ANTLRv4Parser.LexerRuleSpecContext ctx) { 
 		Boolean skipIt = false;
 		String typeName = null;
 		
-		lexerRules.add(ctx);
+		this.addLexerRuleName(ctx.TOKEN_REF().getSymbol().getText());
+		if (ctx.FRAGMENT() != null) {
+			this.addLexerFragmentName(ctx.TOKEN_REF().getSymbol().getText(), ctx.TOKEN_REF().getSymbol());
+		}
+		String modeName = ReferenceIndex.DEFAULT_MODE;
+		if (ctx.getParent() instanceof ANTLRv4Parser.ModeSpecContext) {
+			modeName = ((ANTLRv4Parser.ModeSpecContext)ctx.getParent()).identifier().getText();
+		}
+		this.referenceIndex.addLexerRuleMode(modeName, ctx.TOKEN_REF().getSymbol().getText());
 		ANTLRv4Parser.LexerRuleBlockContext lrbCtx = ctx.lexerRuleBlock();
+		if (this.collectLexerRuleShapes || this.collectLexerRuleCosts) {
+			ArrayList<Token> body = new ArrayList<>();
+			terminals(lrbCtx, body);
+			if (this.collectLexerRuleShapes) {
+				this.addLexerRuleShape(ctx.TOKEN_REF().getSymbol().getText(), modeName
+					, LexerRuleShape.of(body, ctx.FRAGMENT() != null), ctx.TOKEN_REF().getSymbol());
+			}
+			if (this.collectLexerRuleCosts) {
+				this.addLexerRuleCost(ctx.TOKEN_REF().getSymbol().getText(), modeName
+					, LexerRuleCost.of(body), ctx.TOKEN_REF().getSymbol());
+			}
+		}
 		ANTLRv4Parser.LexerAltListContext lalCtx = lrbCtx.lexerAltList();
 
+		this.indexLexerAltList(lalCtx, ctx.TOKEN_REF().getSymbol().getText());
+		this.indexLexerCommands(lalCtx, ctx.TOKEN_REF().getSymbol().getText());
+
 		loop:
 		for (ANTLRv4Parser.LexerAltContext laCtx: lalCtx.lexerAlt()) {
 			ANTLRv4Parser.LexerCommandsContext lcCtx = laCtx.lexerCommands();
@@ -99,18 +182,46 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 			if (typeName != null) {
 				s = typeName;
 			}
-			if (!this.lexerTokens.contains(s)) {
-				this.lexerTokens.add(s);
-			}
+			this.addLexerToken(s, ctx.TOKEN_REF().getSymbol());
 		}
 
 	}
 	
 	/**
-	Collect Parser rules.
+	Collect Parser rules, recording the tokens each refers to in the ReferenceIndex.
 	*/
 	@Override public void enterParserRuleSpec(ANTLRv4Parser.ParserRuleSpecContext ctx) {
-		this.parserRules.add(ctx);
+		this.parserRuleName = ctx.RULE_REF().getSymbol().getText();
+		this.addParserRuleName(this.parserRuleName, ctx.RULE_REF().getSymbol());
+
+		ANTLRv4Parser.RuleBlockContext rbCtx = ctx.ruleBlock();
+		ANTLRv4Parser.RuleAltListContext ralCtx = rbCtx.ruleAltList();
+		for (ANTLRv4Parser.LabeledAltContext laCtx: ralCtx.labeledAlt()) {
+			this.indexParserAlternative(laCtx.alternative(), ctx.RULE_REF().getSymbol().getText());
+		}
+	}
+
+	@Override public void exitParserRuleSpec(ANTLRv4Parser.ParserRuleSpecContext ctx) {
+		this.parserRuleName = null;
+	}
+
+	/**
+	Record each parser rule referred to by the parser rule being walked, 
+	wherever the reference is, as any reference makes the rule reachable.
+	*/
+	@Override public void enterRuleref(ANTLRv4Parser.RulerefContext ctx) {
+		if (this.parserRuleName != null) {
+			this.referenceIndex.addRuleReference(ctx.RULE_REF().getText(), this.parserRuleName);
+		}
+	}
+
+	/**
+	Collect the lexer grammar named by a <code>tokenVocab</code> option.
+	*/
+	@Override public void enterOption(ANTLRv4Parser.OptionContext ctx) {
+		if (ctx.identifier().getText().equals("tokenVocab")) {
+			this.addTokenVocab(ctx.optionValue().getText());
+		}
 	}
 
 	/**
@@ -120,9 +231,7 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 		if (ctx.idList() != null) {
 			if (ctx.idList().identifier() != null) {
 				for (ANTLRv4Parser.IdentifierContext idCtx: ctx.idList().identifier()) {
-					if (!this.lexerChannels.contains(idCtx.getText())) {
-						this.lexerChannels.add(idCtx.getText());
-					}
+					this.addLexerChannel(idCtx.getText(), idCtx.getStart());
 				}
 			}
 		}
@@ -135,7 +244,7 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 		if (ctx.idList() != null) {
 			if (ctx.idList().identifier() != null) {
 				for (ANTLRv4Parser.IdentifierContext idCtx: ctx.idList().identifier()) {
-					this.lexerTokensSpecTokens.add(idCtx.getText());
+					this.addTokensSpecToken(idCtx.getText(), idCtx.getStart());
 				}
 			}
 		}
@@ -147,7 +256,7 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 	@Override public void enterDelegateGrammar(ANTLRv4Parser.DelegateGrammarContext ctx) {
 		if (ctx.identifier() != null) {
 			for (ANTLRv4Parser.IdentifierContext idCtx: ctx.identifier()) {
-				delegateGrammars.add(idCtx.getText());
+				this.addDelegateGrammar(idCtx.getText());
 			}
 		}
 	}
@@ -157,10 +266,142 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 	*/
 	@Override public void enterModeSpec(ANTLRv4Parser.ModeSpecContext ctx) {
 		if (ctx.identifier() != null) {
-			this.modeSpecs.add(ctx.identifier().getText());
+			this.addModeSpec(ctx.identifier().getText(), ctx.identifier().getStart());
 		}
 	}
 
+	/**
+	Lexer Tokens and channels are only collected once each.
+
+	These methods are also used by collectors other than this listener's
+	parse tree walk, e.g. StreamingGrammarListener.
+	*/
+	public void addLexerToken(String s, Token definedBy) {
+		this.addLexerToken(s);
+		this.addDefinition(Finding.TOKEN, s, new Location(definedBy));
+	}
+
+	public void addLexerChannel(String s, Token definedBy) {
+		this.addLexerChannel(s);
+		this.addDefinition(Finding.CHANNEL, s, new Location(definedBy));
+	}
+
+	public void addTokensSpecToken(String s, Token definedBy) {
+		this.addTokensSpecToken(s);
+		this.addDefinition(Finding.TOKENS_SPEC_TOKEN, s, new Location(definedBy));
+	}
+
+	public void addModeSpec(String s, Token definedBy) {
+		this.addModeSpec(s);
+		Location location = new Location(definedBy);
+		this.addDefinition(Finding.MODE_SPEC, s, location);
+		this.addDefinition(Finding.UNREACHABLE_MODE_SPEC, s, location);
+	}
+
+	public void addLexerFragmentName(String s, Token definedBy) {
+		this.addLexerFragmentName(s);
+		this.addDefinition(Finding.UNREACHABLE_FRAGMENT, s, new Location(definedBy));
+	}
+
+	public void addParserRuleName(String s, Token definedBy) {
+		this.addParserRuleName(s);
+		this.addDefinition(Finding.UNREACHABLE_PARSER_RULE, s, new Location(definedBy));
+	}
+
+	/**
+	Record the canonical form of a lexer rule's body, along with its mode, if
+	it has one, and the rule has not already been recorded.
+	*/
+	public void addLexerRuleShape(String s, String modeName, String shape, Token definedBy) {
+		if (shape != null) {
+			this.addLexerRuleShape(s, modeName, shape);
+			this.addDefinition(Finding.DUPLICATE_LEXER_RULE, s, new Location(definedBy));
+		}
+	}
+
+	/**
+	Record the estimated cost of a lexer rule, along with its mode, if it has
+	one, and where it is defined for each costly construct it has.
+	*/
+	public void addLexerRuleCost(String s, String modeName, LexerRuleCost cost, Token definedBy) {
+		if (cost != null) {
+			this.addLexerRuleCost(s, modeName, cost.toString());
+			Location location = new Location(definedBy);
+			if (cost.getLiteralAlternatives() > 0) {
+				this.addDefinition(Finding.KEYWORD_ALTERNATION, s, location);
+			}
+			if (cost.getUnboundedNonGreedyLoops() > 0) {
+				this.addDefinition(Finding.NON_GREEDY_LOOP, s, location);
+			}
+			if (cost.getOverlappingDecisions() > 0) {
+				this.addDefinition(Finding.OVERLAPPING_SETS, s, location);
+			}
+		}
+	}
+
+	/**
+	Record where the named thing in the indicated Finding category is defined,
+	if it has not already been recorded.
+	*/
+	public void addDefinition(String category, String s, Location location) {
+		this.definitions.putIfAbsent(new Finding(category, this.symbols.canonical(s)), location);
+	}
+
+	/**
+	Return where the thing a Finding is about is defined, or null if unknown.
+	*/
+	public Location getDefinition(Finding finding) {
+		return this.definitions.get(finding);
+	}
+
+	public void addLexerToken(String s) {
+		if (this.lexerTokenSet.add(s)) {
+			this.lexerTokens.add(this.symbols.canonical(s));
+		}
+	}
+
+	public void addLexerChannel(String s) {
+		if (this.lexerChannelSet.add(s)) {
+			this.lexerChannels.add(this.symbols.canonical(s));
+		}
+	}
+
+	public void addTokensSpecToken(String s) {
+		this.lexerTokensSpecTokens.add(this.symbols.canonical(s));
+	}
+
+	public void addDelegateGrammar(String s) {
+		this.delegateGrammars.add(this.symbols.canonical(s));
+	}
+
+	public void addTokenVocab(String s) {
+		this.tokenVocabs.add(this.symbols.canonical(s));
+	}
+
+	public void addModeSpec(String s) {
+		this.modeSpecs.add(this.symbols.canonical(s));
+	}
+
+	public void addLexerRuleName(String s) {
+		this.lexerRuleNames.add(this.symbols.canonical(s));
+	}
+
+	public void addLexerFragmentName(String s) {
+		this.lexerFragmentNames.add(this.symbols.canonical(s));
+	}
+
+	public void addParserRuleName(String s) {
+		this.parserRuleNames.add(this.symbols.canonical(s));
+	}
+
+	public void addLexerRuleShape(String s, String modeName, String shape) {
+		this.lexerRuleShapes.putIfAbsent(this.symbols.canonical(s), new String[] {this.symbols.canonical(modeName), shape});
+	}
+
+	public void addLexerRuleCost(String s, String modeName, String cost) {
+		this.lexerRuleCosts.putIfAbsent(this.symbols.canonical(s), new String[] {this.symbols.canonical(modeName), cost});
+	}
+
 	/**
 	Recursive search of <code>lexerAltList</code> looking for an <code>actionBlock</code>.  
 	Return true if found.
@@ -189,6 +430,249 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 		return foundIt;
 	}
 	
+	/**
+	A <code>lexerAltList<code> contains a collection of <code>lexerAlt</code>, each of which contains a 
+	<code>lexerElements</code>, which contains a collection of <code>lexerElement</code>, which contains 
+	either a <code>lexerAtom</code> or a <code>lexerBlock</code>.  A <code>lexerAtom</code> might refer to 
+	a token, which we record.  A <code>lexerBlock</code> might contain a <code>lexerAltList</code>, in which
+	case we recurse.
+	
+	A <code>lexerElement</code> might also contain other things, but we don't care about those.
+	*/
+	private void indexLexerAltList(ANTLRv4Parser.LexerAltListContext altListCtx, String lexerRuleName) {
+		for (ANTLRv4Parser.LexerAltContext laCtx: altListCtx.lexerAlt()) {
+			ANTLRv4Parser.LexerElementsContext lesCtx = laCtx.lexerElements();
+			for(ANTLRv4Parser.LexerElementContext leCtx: lesCtx.lexerElement()) {
+				if (leCtx.lexerAtom() != null) {
+					ANTLRv4Parser.TerminalContext tc = leCtx.lexerAtom().terminal();
+					if (tc != null) {
+						this.referenceIndex.addLexerRuleReference(tc.getText(), lexerRuleName);
+					}
+				} else if (leCtx.lexerBlock() != null) {
+					if (leCtx.lexerBlock().lexerAltList() != null) {
+						this.indexLexerAltList(leCtx.lexerBlock().lexerAltList(), lexerRuleName);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	Record the targets of <code>->channel()</code>, <code>->type()</code>, and
+	<code>->mode()</code>/<code>->pushMode()</code> commands.  Recursively checking for 
+	<code>lexerCommand</code>s in <code>lexerCommands</code> in <code>lexerAlt</code>s in 
+	<code>lexerAltList</code>s is not necessary as a <code>lexerCommand</code> can only be 
+	specified once per <code>lexerRuleSpec</code> as per the "Lexer Commands" section on 
+	page 283 of _The Definitive ANTLR 4 Reference_ ISBN 978-1-93435-699-9.
+	*/
+	private void indexLexerCommands(ANTLRv4Parser.LexerAltListContext altListCtx, String lexerRuleName) {
+		for (ANTLRv4Parser.LexerAltContext laCtx: altListCtx.lexerAlt()) {
+			ANTLRv4Parser.LexerCommandsContext lcCtx = laCtx.lexerCommands();
+			if (lcCtx != null) {
+				for (ANTLRv4Parser.LexerCommandContext lexerCmdCtx: lcCtx.lexerCommand()) {
+					if (lexerCmdCtx.lexerCommandExpr() == null) {
+						continue;
+					}
+					String cmd = lexerCmdCtx.lexerCommandName().getText();
+					String expr = lexerCmdCtx.lexerCommandExpr().getText();
+					if (cmd.equals("channel")) {
+						this.referenceIndex.addChannelReference(expr, lexerRuleName);
+					} else if (cmd.equals("type")) {
+						this.referenceIndex.addTypeReference(expr, lexerRuleName);
+					} else if (cmd.equals("mode") || cmd.equals("pushMode") || cmd.equals("popMode")) {
+						this.referenceIndex.addModeReference(expr, lexerRuleName);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	A Parser rule contains an <code>alternative</code>, which contains a collection of
+	<code>element</code>, which contains an <code>atom</code>, which contains a <code>terminal</code> which may
+	refer to a token, which we record.
+	
+	An <code>element</code> may also contain an <code>ebnf</code>, which contains a <code>block</code>, which contains 
+	an <code>altList</code>, which contains a collection of <code>alternative</code>, in which case we
+	recurse.
+	*/
+	private void indexParserAlternative(ANTLRv4Parser.AlternativeContext altCtx, String parserRuleName) {
+		for (ANTLRv4Parser.ElementContext elmntCtx: altCtx.element()) {
+			if (elmntCtx.atom() != null) {
+				if (elmntCtx.atom().terminal() != null) {
+					if (elmntCtx.atom().terminal().TOKEN_REF() != null) {
+						this.referenceIndex.addParserRuleReference(
+							elmntCtx.atom().terminal().TOKEN_REF().getText(), parserRuleName);
+					}
+				}
+			} else if (elmntCtx.ebnf() != null) {
+				if (elmntCtx.ebnf().block() != null) {
+					if (elmntCtx.ebnf().block().altList() != null) {
+						for (ANTLRv4Parser.AlternativeContext ac: elmntCtx.ebnf().block().altList().alternative()) {
+							this.indexParserAlternative(ac, parserRuleName);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	Append the tokens of the terminals under a parse tree node, in order.
+	*/
+	private static void terminals(ParseTree tree, List<Token> tokens) {
+		if (tree instanceof TerminalNode) {
+			tokens.add(((TerminalNode)tree).getSymbol());
+			return;
+		}
+		for (int i = 0; i < tree.getChildCount(); i++) {
+			terminals(tree.getChild(i), tokens);
+		}
+	}
+
+	/**
+	Append what another GrammarListener collected to what this one has collected,
+	as if this listener had walked the other's parse tree itself.  Used to combine
+	grammar files that were lexed, parsed, and walked concurrently.
+	*/
+	public void merge(GrammarListener other) {
+		for (String s: other.lexerTokens) {
+			this.addLexerToken(s);
+		}
+		for (String s: other.lexerChannels) {
+			this.addLexerChannel(s);
+		}
+		this.mergeNames(this.lexerTokensSpecTokens, other.lexerTokensSpecTokens);
+		this.mergeNames(this.delegateGrammars, other.delegateGrammars);
+		this.mergeNames(this.tokenVocabs, other.tokenVocabs);
+		this.mergeNames(this.modeSpecs, other.modeSpecs);
+		this.mergeNames(this.lexerRuleNames, other.lexerRuleNames);
+		this.mergeNames(this.lexerFragmentNames, other.lexerFragmentNames);
+		this.mergeNames(this.parserRuleNames, other.parserRuleNames);
+		this.referenceIndex.merge(other.referenceIndex);
+		for (Map.Entry<String, String[]> entry: other.lexerRuleShapes.entrySet()) {
+			this.addLexerRuleShape(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+		}
+		for (Map.Entry<String, String[]> entry: other.lexerRuleCosts.entrySet()) {
+			this.addLexerRuleCost(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+		}
+		for (Map.Entry<Finding, Location> entry: other.definitions.entrySet()) {
+			this.addDefinition(entry.getKey().getCategory(), entry.getKey().getName(), entry.getValue());
+		}
+	}
+
+	private void mergeNames(ArrayList<String> names, ArrayList<String> others) {
+		for (String s: others) {
+			names.add(this.symbols.canonical(s));
+		}
+	}
+
+	/**
+	Write what this listener collected, one fact per line.  This is the format of the entries in a GrammarCache.
+	Definitions are written with their line and column but not their file, 
+	as the same content may be cached from a file of another name.
+	*/
+	public void writeFacts(PrintWriter out) {
+		if (this.collectLexerRuleShapes) {
+			out.println("collected\tlexerRuleShapes");
+		}
+		if (this.collectLexerRuleCosts) {
+			out.println("collected\tlexerRuleCosts");
+		}
+		this.writeFacts(out, "lexerToken", this.lexerTokens);
+		this.writeFacts(out, "lexerChannel", this.lexerChannels);
+		this.writeFacts(out, "tokensSpecToken", this.lexerTokensSpecTokens);
+		this.writeFacts(out, "delegateGrammar", this.delegateGrammars);
+		this.writeFacts(out, "tokenVocab", this.tokenVocabs);
+		this.writeFacts(out, "modeSpec", this.modeSpecs);
+		this.writeFacts(out, "lexerRule", this.lexerRuleNames);
+		this.writeFacts(out, "lexerFragment", this.lexerFragmentNames);
+		this.writeFacts(out, "parserRule", this.parserRuleNames);
+		this.referenceIndex.writeFacts(out);
+		for (Map.Entry<String, String[]> entry: this.lexerRuleShapes.entrySet()) {
+			out.println("lexerRuleShape\t" + entry.getKey() + "\t" + entry.getValue()[0] + "\t" + entry.getValue()[1]);
+		}
+		for (Map.Entry<String, String[]> entry: this.lexerRuleCosts.entrySet()) {
+			out.println("lexerRuleCost\t" + entry.getKey() + "\t" + entry.getValue()[0] + "\t" + entry.getValue()[1]);
+		}
+		for (Map.Entry<Finding, Location> entry: this.definitions.entrySet()) {
+			Location location = entry.getValue();
+			out.println("definition\t" + entry.getKey().getCategory() + "\t" + entry.getKey().getName()
+				+ "\t" + location.getLine() + "\t" + location.getColumn());
+		}
+	}
+
+	private void writeFacts(PrintWriter out, String kind, ArrayList<String> names) {
+		for (String s: names) {
+			out.println(kind + "\t" + s);
+		}
+	}
+
+	/**
+	Restore a listener from facts written by <code>writeFacts</code>, its
+	definitions being in the indicated file.  Returns null if a line is not 
+	recognized.
+	*/
+	public static GrammarListener readFacts(BufferedReader in, String fileName) throws IOException {
+		GrammarListener listener = new GrammarListener();
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			String[] fields = line.split("\t");
+			if (fields.length == 2) {
+				if (fields[0].equals("lexerToken")) {
+					listener.addLexerToken(fields[1]);
+				} else if (fields[0].equals("lexerChannel")) {
+					listener.addLexerChannel(fields[1]);
+				} else if (fields[0].equals("tokensSpecToken")) {
+					listener.addTokensSpecToken(fields[1]);
+				} else if (fields[0].equals("delegateGrammar")) {
+					listener.addDelegateGrammar(fields[1]);
+				} else if (fields[0].equals("tokenVocab")) {
+					listener.addTokenVocab(fields[1]);
+				} else if (fields[0].equals("modeSpec")) {
+					listener.addModeSpec(fields[1]);
+				} else if (fields[0].equals("lexerRule")) {
+					listener.addLexerRuleName(fields[1]);
+				} else if (fields[0].equals("lexerFragment")) {
+					listener.addLexerFragmentName(fields[1]);
+				} else if (fields[0].equals("parserRule")) {
+					listener.addParserRuleName(fields[1]);
+				} else if (fields[0].equals("collected") && fields[1].equals("lexerRuleShapes")) {
+					listener.setCollectLexerRuleShapes(true);
+				} else if (fields[0].equals("collected") && fields[1].equals("lexerRuleCosts")) {
+					listener.setCollectLexerRuleCosts(true);
+				} else {
+					return null;
+				}
+			} else if (fields.length == 3) {
+				if (!listener.referenceIndex.readFact(fields[0], fields[1], fields[2])) {
+					return null;
+				}
+			} else if (fields.length == 4 && fields[0].equals("lexerRuleShape")) {
+				listener.addLexerRuleShape(fields[1], fields[2], fields[3]);
+			} else if (fields.length == 4 && fields[0].equals("lexerRuleCost")) {
+				if (LexerRuleCost.valueOf(fields[3]) == null) {
+					return null;
+				}
+				listener.addLexerRuleCost(fields[1], fields[2], fields[3]);
+			} else if (fields.length == 5 && fields[0].equals("definition")) {
+				try {
+					listener.addDefinition(fields[1], fields[2]
+						, new Location(fileName, Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+				} catch(NumberFormatException e) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+		return listener;
+	}
+
+	public ArrayList<String> getLexerFragmentNames() {
+		return this.lexerFragmentNames;
+	}
+
 	public ArrayList<String> getLexerTokens() {
 		return this.lexerTokens;
 	}
@@ -204,17 +688,42 @@ public class GrammarListener extends ANTLRv4ParserBaseListener {
 	public ArrayList<String> getDelegateGrammars() {
 		return this.delegateGrammars;
 	}
+
+	public ArrayList<String> getTokenVocabs() {
+		return this.tokenVocabs;
+	}
 	
 	public ArrayList<String> getModeSpecs() {
 		return this.modeSpecs;
 	}
 
-	public ArrayList<ANTLRv4Parser.LexerRuleSpecContext> getLexerRules() {
-		return this.lexerRules;
+	public ArrayList<String> getLexerRuleNames() {
+		return this.lexerRuleNames;
+	}
+
+	public ArrayList<String> getParserRuleNames() {
+		return this.parserRuleNames;
+	}
+
+	/**
+	The mode and canonical form of the body of each lexer rule which has one,
+	by rule name, in the order the rules were collected.
+	*/
+	public LinkedHashMap<String, String[]> getLexerRuleShapes() {
+		return this.lexerRuleShapes;
+	}
+
+	/**
+	The mode and estimated cost, as written by <code>LexerRuleCost</code>, of
+	each lexer rule whose body could be understood, by rule name, in the
+	order the rules were collected.
+	*/
+	public LinkedHashMap<String, String[]> getLexerRuleCosts() {
+		return this.lexerRuleCosts;
 	}
 
-	public ArrayList<ANTLRv4Parser.ParserRuleSpecContext> getParserRules() {
-		return this.parserRules;
+	public ReferenceIndex getReferenceIndex() {
+		return this.referenceIndex;
 	}
 
 }
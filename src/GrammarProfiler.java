@@ -0,0 +1,450 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import org.antlr.v4.Tool;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.dfa.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.tool.*;
+import org.antlr.v4.tool.ast.*;
+
+/**
+Profiles the decisions of a grammar set's parser over sample inputs.
+
+The grammars are loaded with the ANTLR tool in 
+<code>antlr-4.13.1-complete.jar</code> and each sample is parsed by a 
+ParserInterpreter with profiling enabled, which records for each decision
+how often it was made, the time spent predicting, how far ahead it looked,
+how often SLL prediction failed and full LL prediction was needed, and the
+ambiguities found.  The samples are divided among worker tasks, each with 
+its own interpreters, all sharing one DFA cache as instances of a 
+generated parser do.
+
+Actions are not run and semantic predicates are taken as true, so a
+grammar depending on either may parse samples differently than the parser
+generated from it.
+*/
+public class GrammarProfiler {
+	private Grammar lexerGrammar = null;
+	private Grammar parserGrammar = null;
+	private LexerInterpreter lexerTemplate = null;
+	private ParserInterpreter parserTemplate = null;
+	private DFA[] lexerDFA = null;
+	private DFA[] parserDFA = null;
+	private PredictionContextCache lexerContextCache = new PredictionContextCache();
+	private PredictionContextCache parserContextCache = new PredictionContextCache();
+	private HashMap<Integer, GrammarAST> decisionNodes = new HashMap<>();
+	private ArrayList<String> errors = new ArrayList<>();
+	private long tokenCount = 0;
+	private long syntaxErrorCount = 0;
+	private int sampleCount = 0;
+
+	/**
+	Load the parser grammar of the set and the lexer grammar providing its
+	tokens, looking for imported grammars as an ImportResolver does, in each
+	of the search paths in turn and then beside the grammar importing them.
+	A parser grammar by itself is paired with the lexer
+	grammar named by its <code>tokenVocab</code> option, found beside it or 
+	in a search path.  If they cannot be loaded <code>getErrors()</code> says
+	why.  A lexer grammar has no parser.
+	*/
+	public GrammarProfiler(GrammarSet grammarSet) {
+		super();
+		List<String> fileNames = grammarSet.getGrammarFileNames();
+		List<String> searchPaths = grammarSet.getSearchPaths();
+		String lexerFileName = null;
+		String parserFileName = fileNames.get(fileNames.size() - 1);
+		if (fileNames.size() > 1) {
+			lexerFileName = fileNames.get(0);
+		} else {
+			try {
+				GrammarDecl decl = GrammarDecl.read(parserFileName);
+				if (decl != null && decl.getType().equals(GrammarDecl.LEXER)) {
+					return;
+				}
+				if (decl != null && decl.getType().equals(GrammarDecl.PARSER)) {
+					if (decl.getTokenVocab() != null) {
+						lexerFileName = new ImportResolver(searchPaths, null, null, Map.of())
+							.resolve(decl.getTokenVocab(), parserFileName, false);
+					}
+					if (lexerFileName == null) {
+						this.errors.add("cannot find lexer grammar " + decl.getTokenVocab() + " named by tokenVocab of " + parserFileName);
+						return;
+					}
+				}
+			} catch(IOException e) {
+				this.errors.add(e.toString());
+				return;
+			}
+		}
+
+		/*
+		The parser grammar's tokenVocab names a .tokens file the tool would 
+		generate from the lexer grammar.  Its vocabulary is instead imported 
+		directly from the lexer grammar, so not finding that file is no error,
+		and must not be counted as one lest the tool stop before building the
+		parser's ATN.
+		*/
+		Boolean vocabImported = lexerFileName != null;
+		ImportResolver resolver = new ImportResolver(searchPaths, null, null, Map.of());
+		Tool tool = new Tool() {
+			@Override public File getImportedGrammarFile(Grammar g, String fileName) {
+				if (fileName.endsWith(".g4")) {
+					String found = resolver.resolve(fileName.substring(0, fileName.length() - ".g4".length()), g.fileName, false);
+					if (found != null) {
+						return new File(found);
+					}
+				}
+				return super.getImportedGrammarFile(g, fileName);
+			}
+		};
+		if (!searchPaths.isEmpty()) {
+			tool.libDirectory = searchPaths.get(0);
+		}
+		tool.errMgr = new ErrorManager(tool) {
+			@Override public void emit(ErrorType etype, ANTLRMessage msg) {
+				if (vocabImported && etype == ErrorType.CANNOT_FIND_TOKENS_FILE_REFD_IN_GRAMMAR) {
+					return;
+				}
+				super.emit(etype, msg);
+			}
+		};
+		tool.errMgr.setFormat(tool.msgFormat);
+		tool.removeListeners();
+		tool.addListener(new ANTLRToolListener() {
+			@Override public void info(String msg) {
+			}
+			@Override public void error(ANTLRMessage msg) {
+				GrammarProfiler.this.errors.add(tool.errMgr.getMessageTemplate(msg).render());
+			}
+			@Override public void warning(ANTLRMessage msg) {
+			}
+		});
+
+		Grammar lexerGrammar = null;
+		Grammar parserGrammar = null;
+		try {
+			if (lexerFileName == null) {
+				parserGrammar = tool.loadGrammar(parserFileName);
+				lexerGrammar = parserGrammar.getImplicitLexer();
+			} else {
+				lexerGrammar = tool.loadGrammar(lexerFileName);
+				if (this.errors.isEmpty()) {
+					GrammarRootAST ast = tool.parseGrammar(parserFileName);
+					if (ast != null) {
+						parserGrammar = tool.createGrammar(ast);
+						parserGrammar.fileName = parserFileName;
+						parserGrammar.importVocab(lexerGrammar);
+						tool.process(parserGrammar, false);
+					}
+				}
+			}
+		} catch(RuntimeException e) {
+			this.errors.add(e.toString());
+			return;
+		}
+		if (!this.errors.isEmpty()) {
+			return;
+		}
+		if (parserGrammar == null || lexerGrammar == null || parserGrammar.isLexer()) {
+			this.errors.add("cannot load a lexer and parser from " + grammarSet);
+			return;
+		}
+
+		/*
+		The interpreters created by the tool each deserialize their own copy 
+		of the ATN.  These first ones provide the ATN, and their names, for 
+		all the interpreters each worker creates, so the DFA, which refer to
+		states of the ATN, can be shared.
+		*/
+		this.lexerGrammar = lexerGrammar;
+		this.parserGrammar = parserGrammar;
+		this.lexerTemplate = lexerGrammar.createLexerInterpreter(CharStreams.fromString(""));
+		this.parserTemplate = parserGrammar.createParserInterpreter(new CommonTokenStream(this.lexerTemplate));
+		this.lexerDFA = newDFA(this.lexerTemplate.getATN());
+		this.parserDFA = newDFA(this.parserTemplate.getATN());
+		collectDecisionNodes(parserGrammar.ast);
+	}
+
+	public ArrayList<String> getErrors() {
+		return this.errors;
+	}
+
+	/**
+	Whether a parser grammar was loaded, which is not the case if the set is
+	a lexer grammar or could not be loaded.
+	*/
+	public Boolean hasParser() {
+		return this.parserGrammar != null;
+	}
+
+	/**
+	The parser grammar loaded, as processed by the tool, from which its ATN
+	was built.
+	*/
+	public Grammar getParserGrammar() {
+		return this.parserGrammar;
+	}
+
+	/**
+	The file name of the parser grammar loaded.
+	*/
+	public String getFileName() {
+		return this.parserGrammar.fileName;
+	}
+
+	/**
+	The names of the parser rules, indexed as in the ATN.
+	*/
+	public String[] getRuleNames() {
+		return this.parserTemplate.getRuleNames();
+	}
+
+	/**
+	The number of samples parsed by the last call to <code>profile</code>.
+	*/
+	public int getSampleCount() {
+		return this.sampleCount;
+	}
+
+	/**
+	The number of tokens, excluding <code>EOF</code>, in the samples parsed 
+	by the last call to <code>profile</code>.
+	*/
+	public long getTokenCount() {
+		return this.tokenCount;
+	}
+
+	/**
+	The number of syntax errors reported by the lexer and parser while 
+	parsing the samples in the last call to <code>profile</code>.
+	*/
+	public long getSyntaxErrorCount() {
+		return this.syntaxErrorCount;
+	}
+
+	/**
+	The regular files in the indicated directory tree, in order by name.
+	*/
+	public static ArrayList<Path> sampleFiles(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			return paths
+				.filter(p -> Files.isRegularFile(p))
+				.sorted()
+				.collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	/**
+	Parse each of the samples from the indicated start rule, dividing them
+	among at most the indicated number of tasks on the executor, and return
+	what was recorded for each decision, indexed by decision number.  Samples
+	which cannot be read are reported in <code>getErrors()</code> and 
+	skipped.
+	*/
+	public DecisionInfo[] profile(List<Path> samples, String startRule, int tasks, ExecutorService executor) 
+			throws InterruptedException {
+		int startRuleIndex = Arrays.asList(this.getRuleNames()).indexOf(startRule);
+		int n = Math.max(1, Math.min(tasks, samples.size()));
+		ArrayList<Future<Worker>> futures = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			ArrayList<Path> share = new ArrayList<>();
+			for (int j = i; j < samples.size(); j += n) {
+				share.add(samples.get(j));
+			}
+			futures.add(executor.submit(() -> {
+				Worker worker = new Worker();
+				for (Path p: share) {
+					worker.parse(p, startRuleIndex);
+				}
+				return worker;
+			}));
+		}
+
+		int decisions = this.parserTemplate.getATN().getNumberOfDecisions();
+		DecisionInfo[] profile = new DecisionInfo[decisions];
+		for (int d = 0; d < decisions; d++) {
+			profile[d] = new DecisionInfo(d);
+			profile[d].SLL_MinLook = Long.MAX_VALUE;
+			profile[d].LL_MinLook = Long.MAX_VALUE;
+		}
+		this.sampleCount = 0;
+		this.tokenCount = 0;
+		this.syntaxErrorCount = 0;
+		for (Future<Worker> future: futures) {
+			Worker worker = null;
+			try {
+				worker = future.get();
+			} catch(ExecutionException e) {
+				this.errors.add("Error profiling " + this.getFileName() + " " + e.getCause());
+				continue;
+			}
+			this.errors.addAll(worker.errors);
+			this.sampleCount += worker.sampleCount;
+			this.tokenCount += worker.tokenCount;
+			this.syntaxErrorCount += worker.syntaxErrorCount;
+			if (worker.parser != null) {
+				merge(profile, worker.parser.getParseInfo().getDecisionInfo());
+			}
+		}
+		for (DecisionInfo info: profile) {
+			if (info.SLL_MinLook == Long.MAX_VALUE) info.SLL_MinLook = 0;
+			if (info.LL_MinLook == Long.MAX_VALUE) info.LL_MinLook = 0;
+		}
+		return profile;
+	}
+
+	/**
+	The name of the parser rule in which a decision is made.
+	*/
+	public String getRuleName(int decision) {
+		return this.getRuleNames()[this.parserTemplate.getATN().getDecisionState(decision).ruleIndex];
+	}
+
+	/**
+	Where a decision is made, the start of the block, loop, or optional
+	element choosing among alternatives, or if that cannot be determined the
+	definition of the rule in which it is made.  A left recursive rule is 
+	rewritten by the tool, the positions in its rewritten tree being of no 
+	use, so its decisions are located at the definition of the rule as 
+	written.
+	*/
+	public Location getLocation(int decision) {
+		ATNState s = this.parserTemplate.getATN().getDecisionState(decision);
+		Rule r = this.parserGrammar.getRule(s.ruleIndex);
+		if (r instanceof LeftRecursiveRule) {
+			org.antlr.runtime.tree.Tree node = ((LeftRecursiveRule)r).getOriginalAST().getChild(0);
+			return new Location(r.g.fileName, node.getLine(), node.getCharPositionInLine() + 1);
+		}
+		org.antlr.runtime.tree.Tree node = this.decisionNodes.get(s.stateNumber);
+		if (node == null) {
+			node = r.ast.getChild(0);
+		}
+		return new Location(r.g.fileName, node.getLine(), node.getCharPositionInLine() + 1);
+	}
+
+	/**
+	Map the number of each ATN state built from a node of the grammar's 
+	abstract syntax tree, which includes the rules of imported grammars, to
+	that node.  A loop's decision is made in a state built from its block,
+	as is the decision to enter it.
+	*/
+	private void collectDecisionNodes(GrammarAST node) {
+		if (node.atnState != null) {
+			this.decisionNodes.putIfAbsent(node.atnState.stateNumber, node);
+		}
+		for (int i = 0; i < node.getChildCount(); i++) {
+			collectDecisionNodes((GrammarAST)node.getChild(i));
+		}
+	}
+
+	private static DFA[] newDFA(ATN atn) {
+		DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+		for (int i = 0; i < dfa.length; i++) {
+			dfa[i] = new DFA(atn.getDecisionState(i), i);
+		}
+		return dfa;
+	}
+
+	/**
+	Add what one worker recorded for each decision to the totals.
+	*/
+	private static void merge(DecisionInfo[] profile, DecisionInfo[] decisions) {
+		for (DecisionInfo from: decisions) {
+			DecisionInfo to = profile[from.decision];
+			to.invocations += from.invocations;
+			to.timeInPrediction += from.timeInPrediction;
+			to.SLL_TotalLook += from.SLL_TotalLook;
+			to.SLL_MaxLook = Math.max(to.SLL_MaxLook, from.SLL_MaxLook);
+			to.LL_TotalLook += from.LL_TotalLook;
+			to.LL_MaxLook = Math.max(to.LL_MaxLook, from.LL_MaxLook);
+			if (from.invocations > 0) {
+				to.SLL_MinLook = Math.min(to.SLL_MinLook, from.SLL_MinLook);
+			}
+			if (from.LL_Fallback > 0) {
+				to.LL_MinLook = Math.min(to.LL_MinLook, from.LL_MinLook);
+			}
+			to.SLL_ATNTransitions += from.SLL_ATNTransitions;
+			to.SLL_DFATransitions += from.SLL_DFATransitions;
+			to.LL_Fallback += from.LL_Fallback;
+			to.LL_ATNTransitions += from.LL_ATNTransitions;
+			to.LL_DFATransitions += from.LL_DFATransitions;
+			to.contextSensitivities.addAll(from.contextSensitivities);
+			to.errors.addAll(from.errors);
+			to.ambiguities.addAll(from.ambiguities);
+			to.predicateEvals.addAll(from.predicateEvals);
+		}
+	}
+
+	/**
+	A lexer and a profiling parser which parse samples one after another on 
+	a single thread, counting what they find.
+	*/
+	private class Worker extends BaseErrorListener {
+		private LexerInterpreter lexer = null;
+		private ParserInterpreter parser = null;
+		private ArrayList<String> errors = new ArrayList<>();
+		private int sampleCount = 0;
+		private long tokenCount = 0;
+		private long syntaxErrorCount = 0;
+
+		private Worker() {
+			LexerInterpreter l = GrammarProfiler.this.lexerTemplate;
+			ParserInterpreter p = GrammarProfiler.this.parserTemplate;
+			this.lexer = new LexerInterpreter(l.getGrammarFileName(), l.getVocabulary(), Arrays.asList(l.getRuleNames())
+				, Arrays.asList(l.getChannelNames()), Arrays.asList(l.getModeNames()), l.getATN(), CharStreams.fromString(""));
+			this.lexer.setInterpreter(new LexerATNSimulator(this.lexer, l.getATN()
+				, GrammarProfiler.this.lexerDFA, GrammarProfiler.this.lexerContextCache));
+			this.lexer.removeErrorListeners();
+			this.lexer.addErrorListener(this);
+			this.parser = new ParserInterpreter(p.getGrammarFileName(), p.getVocabulary(), Arrays.asList(p.getRuleNames())
+				, p.getATN(), new CommonTokenStream(this.lexer));
+			this.parser.setInterpreter(new ParserATNSimulator(this.parser, p.getATN()
+				, GrammarProfiler.this.parserDFA, GrammarProfiler.this.parserContextCache));
+			this.parser.setProfile(true);
+			this.parser.removeErrorListeners();
+			this.parser.addErrorListener(this);
+		}
+
+		private void parse(Path sample, int startRuleIndex) {
+			CharStream input = null;
+			try {
+				input = CharStreams.fromPath(sample);
+			} catch(IOException e) {
+				this.errors.add("Error reading sample " + sample + " " + e);
+				return;
+			}
+			this.lexer.setInputStream(input);
+			CommonTokenStream tokens = new CommonTokenStream(this.lexer);
+			tokens.fill();
+			this.parser.setTokenStream(tokens);
+			this.parser.parse(startRuleIndex);
+			this.sampleCount++;
+			this.tokenCount += tokens.size() - 1;
+		}
+
+		@Override public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol
+				, int line, int charPositionInLine, String msg, RecognitionException e) {
+			this.syntaxErrorCount++;
+		}
+	}
+
+}
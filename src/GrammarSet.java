@@ -0,0 +1,119 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.nio.file.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+The grammar files linted together and reported on together, either a single
+combined grammar or a lexer grammar and a parser grammar, along with the
+paths where the grammars they import are located and the rules parsing 
+starts from.  A program linting grammars it holds in memory may add their
+sources, which are linted in place of the files.
+*/
+public class GrammarSet {
+	private ArrayList<String> grammarFileNames = new ArrayList<>();
+	private ArrayList<String> searchPaths = new ArrayList<>();
+	private ArrayList<String> startRules = new ArrayList<>();
+	private HashMap<Path, String> sources = new HashMap<>();
+
+	public GrammarSet(String combinedFileName, List<String> searchPaths) {
+		super();
+		this.grammarFileNames.add(combinedFileName);
+		this.searchPaths.addAll(searchPaths);
+	}
+
+	public GrammarSet(String lexerFileName, String parserFileName, List<String> searchPaths) {
+		super();
+		this.grammarFileNames.add(lexerFileName);
+		this.grammarFileNames.add(parserFileName);
+		this.searchPaths.addAll(searchPaths);
+	}
+
+	public ArrayList<String> getGrammarFileNames() {
+		return this.grammarFileNames;
+	}
+
+	/**
+	The directories searched, in order, for imported grammars.
+	*/
+	public ArrayList<String> getSearchPaths() {
+		return this.searchPaths;
+	}
+
+	/**
+	The parser rules from which all others should be reachable, or an empty
+	list if the first parser rule is the start rule.
+	*/
+	public ArrayList<String> getStartRules() {
+		return this.startRules;
+	}
+
+	/**
+	Set the start rules from a comma separated list of parser rule names, 
+	which may be null.
+	*/
+	public void setStartRules(String startRules) {
+		this.startRules.clear();
+		if (startRules != null) {
+			for (String s: startRules.split(",")) {
+				if (!s.isBlank()) {
+					this.startRules.add(s.trim());
+				}
+			}
+		}
+	}
+
+	/**
+	Lint the indicated grammar file from the content of the CharStream rather
+	than from the file, which need not exist.  The file name still identifies
+	the grammar in findings, and grammars it imports are still looked for
+	beside it, among both files and added sources.  This may be any grammar
+	of the set, including one it imports.
+	*/
+	public void addSource(String fileName, CharStream source) {
+		this.sources.put(key(fileName), source.getText(Interval.of(0, source.size() - 1)));
+	}
+
+	/**
+	The content added for the indicated grammar file, or null if it is to be
+	read from the file.
+	*/
+	public String getSource(String fileName) {
+		return this.sources.get(key(fileName));
+	}
+
+	/**
+	The normalized absolute paths of the grammar files whose content was
+	added.
+	*/
+	public Set<Path> getSources() {
+		return this.sources.keySet();
+	}
+
+	/**
+	Grammar files are identified as ImportResolver identifies them.
+	*/
+	private static Path key(String fileName) {
+		return Paths.get(fileName).toAbsolutePath().normalize();
+	}
+
+	@Override public String toString() {
+		return String.join(" ", this.grammarFileNames);
+	}
+
+}
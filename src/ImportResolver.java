@@ -0,0 +1,159 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+Finds and loads the grammars imported by a grammar set, and those the
+imported grammars import in turn, along with the lexer grammar named by any
+<code>tokenVocab</code> option which is not already in the set.
+
+Each grammar is loaded as soon as it is discovered, rather than a level of
+imports at a time, as the task loading a grammar prefetches the grammars
+it names before finishing.  Each file is loaded at most once, however many 
+grammars name it, files being identified by their normalized absolute path.
+
+An imported grammar is looked for in each search path in turn, then in 
+the directory of the grammar importing it.  A <code>tokenVocab</code>
+grammar which is not found is not an error, as only its 
+<code>.tokens</code> file may exist.  Files whose content the caller
+holds in memory are found as though they existed.
+
+Without an executor each file is loaded on the thread prefetching it, along
+with the files it names in turn, before <code>prefetch</code> returns.
+*/
+public class ImportResolver {
+	private ArrayList<String> searchPaths = null;
+	private ExecutorService executor = null;
+	private Function<String, LoadedGrammar> loader = null;
+	private Set<Path> sources = null;
+	private ConcurrentHashMap<Path, Future<LoadedGrammar>> futures = new ConcurrentHashMap<>();
+
+	/**
+	Files in <code>alreadyLoaded</code> are not loaded again.
+	*/
+	public ImportResolver(
+		List<String> searchPaths
+		, ExecutorService executor
+		, Function<String, LoadedGrammar> loader
+		, Map<String, LoadedGrammar> alreadyLoaded) {
+		this(searchPaths, executor, loader, alreadyLoaded, Set.of());
+	}
+
+	/**
+	Files in <code>sources</code>, identified by <code>key</code>, are
+	found whether or not they exist.
+	*/
+	public ImportResolver(
+		List<String> searchPaths
+		, ExecutorService executor
+		, Function<String, LoadedGrammar> loader
+		, Map<String, LoadedGrammar> alreadyLoaded
+		, Set<Path> sources) {
+		super();
+		this.searchPaths = new ArrayList<>(searchPaths);
+		this.executor = executor;
+		this.loader = loader;
+		this.sources = new HashSet<>(sources);
+		for (Map.Entry<String, LoadedGrammar> entry: alreadyLoaded.entrySet()) {
+			this.futures.put(key(entry.getKey()), CompletableFuture.completedFuture(entry.getValue()));
+		}
+	}
+
+	/**
+	The normalized absolute path identifying a grammar file.
+	*/
+	public static Path key(String fileName) {
+		return Paths.get(fileName).toAbsolutePath().normalize();
+	}
+
+	/**
+	Start loading the indicated file if it has not already been started.
+	*/
+	public Future<LoadedGrammar> prefetch(String fileName) {
+		if (this.executor != null) {
+			return this.futures.computeIfAbsent(key(fileName), k -> this.executor.submit(() -> this.load(fileName)));
+		}
+		/*
+		Loading a file prefetches those it names, so the task is added before
+		it is run, else a cycle of imports would never end.
+		*/
+		FutureTask<LoadedGrammar> task = new FutureTask<>(() -> this.load(fileName));
+		Future<LoadedGrammar> future = this.futures.putIfAbsent(key(fileName), task);
+		if (future != null) {
+			return future;
+		}
+		task.run();
+		return task;
+	}
+
+	/**
+	Return the file names of the grammars a loaded grammar imports, followed
+	by those of any <code>tokenVocab</code> grammars which were found.
+	*/
+	public ArrayList<String> delegatesOf(LoadedGrammar loaded) {
+		ArrayList<String> fileNames = new ArrayList<>();
+		GrammarListener listener = loaded.getListener();
+		for (String s: listener.getDelegateGrammars()) {
+			fileNames.add(this.resolve(s, loaded.getFileName(), true));
+		}
+		for (String s: listener.getTokenVocabs()) {
+			String fileName = this.resolve(s, loaded.getFileName(), false);
+			if (fileName != null) {
+				fileNames.add(fileName);
+			}
+		}
+		return fileNames;
+	}
+
+	/**
+	Return the file name of the named grammar as found in the search paths or
+	beside the importing grammar.  If it is not found, return where it was
+	first looked for if it is required, so loading it reports the error, 
+	otherwise null.
+	*/
+	public String resolve(String grammarName, String importingFileName, Boolean required) {
+		String grammarFileName = grammarName + ".g4";
+		ArrayList<Path> candidates = new ArrayList<>();
+		for (String searchPath: this.searchPaths) {
+			candidates.add(Paths.get(searchPath, grammarFileName));
+		}
+		candidates.add(Paths.get(importingFileName).resolveSibling(grammarFileName));
+		for (Path candidate: candidates) {
+			if (this.sources.contains(key(candidate.toString())) || Files.isRegularFile(candidate)) {
+				return candidate.toString();
+			}
+		}
+		return required ? candidates.get(0).toString() : null;
+	}
+
+	/**
+	Load a file and prefetch the files it names, so they are loading
+	concurrently with whatever the caller does next.
+	*/
+	private LoadedGrammar load(String fileName) {
+		LoadedGrammar loaded = this.loader.apply(fileName);
+		if (!loaded.hasFailed()) {
+			for (String delegate: this.delegatesOf(loaded)) {
+				this.prefetch(delegate);
+			}
+		}
+		return loaded;
+	}
+
+}
@@ -0,0 +1,43 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+
+/**
+Writes each finding as a JSON object on a line of its own.
+*/
+public class JsonLinesFindingWriter extends FindingWriter {
+
+	public JsonLinesFindingWriter(PrintStream out) {
+		super(out);
+	}
+
+	@Override public synchronized void write(Finding finding, Location location) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"ruleId\":").append(quote(finding.getRuleId()));
+		sb.append(",\"category\":").append(quote(finding.getCategory()));
+		sb.append(",\"name\":").append(quote(finding.getName()));
+		if (location != null) {
+			sb.append(",\"file\":").append(quote(location.getFileName()));
+			sb.append(",\"line\":").append(location.getLine());
+			sb.append(",\"column\":").append(location.getColumn());
+		}
+		sb.append(",\"message\":").append(quote(finding.getMessage()));
+		sb.append('}');
+		this.out.println(sb);
+		this.out.flush();
+	}
+
+}
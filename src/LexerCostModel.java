@@ -0,0 +1,172 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+Estimates of the size of the ATN and DFA of each mode of a lexer, from the
+cost of each of its rules, as estimated by LexerRuleCost, and the canonical
+form of each, as computed by LexerRuleShape.
+
+The ATN of a mode has a state for the mode's start and the states of each of
+its rules.  Its DFA is built as tokens are matched, so its size depends on 
+the input, but a mode with many keywords will have at least a state for 
+each distinct prefix of each keyword, and at least one state for each ATN
+state of its other rules which input reaches.
+
+A keyword is a token whose canonical form is a sequence of two or more 
+letters, each in either or both cases, given directly or by a fragment
+which is a single set, e.g. <code>'select'</code> or <code>S E L E C T</code> where 
+<code>S : [sS];</code>.
+*/
+public class LexerCostModel {
+	private LinkedHashMap<String, LexerRuleCost> costs = new LinkedHashMap<>();
+	private LinkedHashMap<String, String> modes = new LinkedHashMap<>();
+	private LinkedHashMap<String, long[]> estimates = new LinkedHashMap<>();
+
+	private static final int ATN_STATES = 0;
+	private static final int DFA_STATES = 1;
+	private static final int KEYWORDS = 2;
+	private static final int KEYWORD_STATES = 3;
+
+	public LexerCostModel(Map<String, String[]> lexerRuleCosts, Map<String, String[]> lexerRuleShapes) {
+		super();
+		for (Map.Entry<String, String[]> entry: lexerRuleCosts.entrySet()) {
+			LexerRuleCost cost = LexerRuleCost.valueOf(entry.getValue()[1]);
+			if (cost != null) {
+				this.costs.put(entry.getKey(), cost);
+				this.modes.put(entry.getKey(), entry.getValue()[0]);
+			}
+		}
+
+		HashMap<String, String> letterFragments = new HashMap<>();
+		for (Map.Entry<String, String[]> entry: lexerRuleShapes.entrySet()) {
+			String shape = entry.getValue()[1];
+			if (shape.startsWith("fragment ") && isLetterSet(shape.substring("fragment ".length()))) {
+				letterFragments.put(entry.getKey(), shape.substring("fragment ".length()));
+			}
+		}
+
+		HashMap<String, HashSet<String>> prefixes = new HashMap<>();
+		for (Map.Entry<String, LexerRuleCost> entry: this.costs.entrySet()) {
+			String mode = this.modes.get(entry.getKey());
+			long[] estimate = this.estimates.computeIfAbsent(mode, k -> new long[] {1, 0, 0, 0});
+			int states = entry.getValue().getStates();
+			estimate[ATN_STATES] += states;
+
+			String[] shape = lexerRuleShapes.get(entry.getKey());
+			List<String> keyword = shape == null ? null : keyword(shape[1], letterFragments);
+			if (keyword != null) {
+				estimate[KEYWORDS]++;
+				estimate[KEYWORD_STATES] += states;
+				HashSet<String> modePrefixes = prefixes.computeIfAbsent(mode, k -> new HashSet<>());
+				for (int i = 1; i <= keyword.size(); i++) {
+					modePrefixes.add(String.join(" ", keyword.subList(0, i)));
+				}
+			} else if (shape == null || !shape[1].startsWith("fragment ")) {
+				estimate[DFA_STATES] += states;
+			}
+		}
+		for (Map.Entry<String, HashSet<String>> entry: prefixes.entrySet()) {
+			this.estimates.get(entry.getKey())[DFA_STATES] += entry.getValue().size();
+		}
+	}
+
+	/**
+	The modes, in the order their first rule was collected.
+	*/
+	public Set<String> getModeNames() {
+		return this.estimates.keySet();
+	}
+
+	public long getATNStates(String mode) {
+		return this.estimates.get(mode)[ATN_STATES];
+	}
+
+	public long getDFAStates(String mode) {
+		return this.estimates.get(mode)[DFA_STATES];
+	}
+
+	public long getKeywords(String mode) {
+		return this.estimates.get(mode)[KEYWORDS];
+	}
+
+	/**
+	The ATN states of the keywords of a mode, all of which the lexer follows 
+	from the start of the mode until the input no longer matches them.
+	*/
+	public long getKeywordStates(String mode) {
+		return this.estimates.get(mode)[KEYWORD_STATES];
+	}
+
+	/**
+	The estimated cost of each lexer rule whose body could be understood, by
+	rule name, in the order the rules were collected.
+	*/
+	public LinkedHashMap<String, LexerRuleCost> getCosts() {
+		return this.costs;
+	}
+
+	/**
+	The sets of a keyword's canonical form, with its fragments replaced by
+	their sets, or null if it is not a keyword.
+	*/
+	private static List<String> keyword(String shape, Map<String, String> letterFragments) {
+		if (shape.startsWith("fragment ")) {
+			return null;
+		}
+		String[] elements = shape.split(" ");
+		if (elements.length < 2) {
+			return null;
+		}
+		ArrayList<String> sets = new ArrayList<>();
+		for (String element: elements) {
+			if (letterFragments.containsKey(element)) {
+				sets.add(letterFragments.get(element));
+			} else if (isLetterSet(element)) {
+				sets.add(element);
+			} else {
+				return null;
+			}
+		}
+		return sets;
+	}
+
+	/**
+	Whether a set in canonical form, e.g. <code>[65,97]</code>, is of one or
+	two letters, i.e. a letter in either or both cases.
+	*/
+	private static Boolean isLetterSet(String set) {
+		if (!set.startsWith("[") || !set.endsWith("]") || set.length() < 3) {
+			return false;
+		}
+		int letters = 0;
+		try {
+			for (String interval: set.substring(1, set.length() - 1).split(",")) {
+				String[] bounds = interval.split("-");
+				int from = Integer.parseInt(bounds[0]);
+				int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+				letters += to - from + 1;
+				if (letters > 2 || !Character.isLetter(from) || !Character.isLetter(to)) {
+					return false;
+				}
+			}
+		} catch(NumberFormatException e) {
+			return false;
+		}
+		return true;
+	}
+
+}
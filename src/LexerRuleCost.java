@@ -0,0 +1,448 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+What a lexer rule is estimated to cost the lexer, computed from the tokens
+of its body as LexerRuleShape is, so each collector can compute it.
+
+<ul>
+<li>The number of ATN states the ANTLR tool builds for the rule, following 
+the way the tool builds them: two for the rule, one more than the number of
+characters for a literal, two for a set, a reference to another rule, or 
+a lexer command, two more for a block of alternatives, and three more for a
+<code>*</code> loop or two more for a <code>+</code> loop.  Consecutive 
+single elements share a state, and alternatives which are each a single 
+set become a single set.  The states of the rules a rule references are 
+counted where those rules are defined.</li>
+<li>The number of non-greedy loops which can match any character, e.g. 
+<code>.*?</code> or <code>~[\n]*?</code>, followed by something else.  The
+lexer tries what follows such a loop at every character it matches.</li>
+<li>The number of decisions where alternatives begin with overlapping sets 
+of characters, or a greedy loop or optional element begins with characters
+which could also begin what follows it, so the lexer cannot choose by the
+first character.  Elements beginning with a reference to another rule are
+not compared.</li>
+<li>The number of alternatives of the rule which are each a literal of
+several characters, e.g. a list of keywords.</li>
+</ul>
+*/
+public class LexerRuleCost {
+	private int states = 0;
+	private int unboundedNonGreedyLoops = 0;
+	private int overlappingDecisions = 0;
+	private int literalAlternatives = 0;
+
+	private List<Token> tokens = null;
+	private int i = 0;
+	private Boolean failed = false;
+
+	private LexerRuleCost(List<Token> tokens) {
+		super();
+		this.tokens = tokens;
+	}
+
+	private LexerRuleCost(int states, int unboundedNonGreedyLoops, int overlappingDecisions, int literalAlternatives) {
+		super();
+		this.states = states;
+		this.unboundedNonGreedyLoops = unboundedNonGreedyLoops;
+		this.overlappingDecisions = overlappingDecisions;
+		this.literalAlternatives = literalAlternatives;
+	}
+
+	/**
+	Return the cost of the body of a lexer rule, given as the tokens on the
+	default channel following its <code>COLON</code> up to but not including
+	its <code>SEMI</code>.  Returns null if the body cannot be understood.
+	*/
+	public static LexerRuleCost of(List<Token> body) {
+		LexerRuleCost cost = new LexerRuleCost(body);
+		ArrayList<Part> alts = cost.altList();
+		if (cost.failed || cost.i != body.size()) {
+			return null;
+		}
+		for (int j = 0; j < body.size(); j++) {
+			if (body.get(j).getType() == ANTLRv4Lexer.STRING_LITERAL
+					&& (j == 0 || body.get(j - 1).getType() == ANTLRv4Lexer.OR)
+					&& (j + 1 == body.size() || body.get(j + 1).getType() == ANTLRv4Lexer.OR)) {
+				int[] text = LexerRuleShape.literal(body.get(j).getText());
+				if (text != null && text.length > 1) {
+					cost.literalAlternatives++;
+				}
+			}
+		}
+		cost.states = 2 + cost.block(alts, "").states;
+		cost.tokens = null;
+		return cost;
+	}
+
+	/**
+	Restore a cost written by <code>toString()</code>.  Returns null if it is
+	not in that form.
+	*/
+	public static LexerRuleCost valueOf(String s) {
+		String[] fields = s.split(",");
+		if (fields.length != 4) {
+			return null;
+		}
+		try {
+			return new LexerRuleCost(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])
+				, Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+		} catch(NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public int getStates() {
+		return this.states;
+	}
+
+	public int getUnboundedNonGreedyLoops() {
+		return this.unboundedNonGreedyLoops;
+	}
+
+	public int getOverlappingDecisions() {
+		return this.overlappingDecisions;
+	}
+
+	public int getLiteralAlternatives() {
+		return this.literalAlternatives;
+	}
+
+	/**
+	The cost as a fact, its four counts separated by commas.
+	*/
+	@Override public String toString() {
+		return this.states + "," + this.unboundedNonGreedyLoops + "," + this.overlappingDecisions + "," + this.literalAlternatives;
+	}
+
+	/**
+	What is known of an element, an alternative, or a block.  The first set
+	is null if it is not known, and empty if nothing need be matched.
+	*/
+	private static class Part {
+		private int states = 0;
+		private IntervalSet first = new IntervalSet();
+		private Boolean nullable = false;
+		private Boolean simple = false;
+		private Boolean singleSet = false;
+		private Boolean anyCharacter = false;
+		private Boolean greedyOptional = false;
+		private Boolean endsInTransition = false;
+		private Boolean unboundedNonGreedy = false;
+	}
+
+	private ArrayList<Part> altList() {
+		ArrayList<Part> alts = new ArrayList<>();
+		alts.add(this.alt());
+		while (!this.failed && this.type() == ANTLRv4Lexer.OR) {
+			this.i++;
+			alts.add(this.alt());
+		}
+		return alts;
+	}
+
+	/**
+	An alternative, its elements followed by its lexer commands if any.
+	*/
+	private Part alt() {
+		ArrayList<Part> elements = new ArrayList<>();
+		int commands = 0;
+		while (!this.failed) {
+			int type = this.type();
+			if (type == Token.EOF || type == ANTLRv4Lexer.OR || type == ANTLRv4Lexer.RPAREN) {
+				break;
+			} else if (type == ANTLRv4Lexer.RARROW) {
+				commands = this.commands();
+			} else {
+				elements.add(this.element());
+			}
+		}
+
+		Part alt = new Part();
+		if (elements.isEmpty()) {
+			alt.states = 2;
+			alt.nullable = true;
+		} else {
+			alt.nullable = true;
+			for (int j = 0; j < elements.size(); j++) {
+				Part e = elements.get(j);
+				alt.states += e.simple && j + 1 < elements.size() ? 1 : e.states;
+				if (alt.nullable) {
+					alt.first = union(alt.first, e.first);
+					alt.nullable = e.nullable;
+				}
+				alt.anyCharacter |= e.anyCharacter;
+				if (e.greedyOptional && j + 1 < elements.size() && overlap(e.first, elements.get(j + 1).first)) {
+					this.overlappingDecisions++;
+				}
+				if (e.unboundedNonGreedy && j + 1 < elements.size()) {
+					this.unboundedNonGreedyLoops++;
+				}
+			}
+			if (elements.size() == 1) {
+				alt.simple = elements.get(0).simple;
+				alt.singleSet = elements.get(0).singleSet;
+			}
+			alt.endsInTransition = elements.get(elements.size() - 1).endsInTransition;
+		}
+		if (commands > 0) {
+			alt.states += commands + 1;
+			alt.simple = false;
+			alt.singleSet = false;
+			alt.endsInTransition = true;
+		}
+		return alt;
+	}
+
+	/**
+	Skip the lexer commands at i, returning how many there are.
+	*/
+	private int commands() {
+		int commands = 1;
+		int depth = 0;
+		this.i++;
+		while (this.type() != Token.EOF) {
+			int type = this.type();
+			if (depth == 0 && (type == ANTLRv4Lexer.OR || type == ANTLRv4Lexer.RPAREN)) {
+				break;
+			}
+			if (type == ANTLRv4Lexer.LPAREN) {
+				depth++;
+			} else if (type == ANTLRv4Lexer.RPAREN) {
+				depth--;
+			} else if (type == ANTLRv4Lexer.COMMA && depth == 0) {
+				commands++;
+			}
+			this.i++;
+		}
+		return commands;
+	}
+
+	/**
+	The element at i with its suffix, if any.  A loop or optional element is 
+	a block of its own, even if it is a single atom.
+	*/
+	private Part element() {
+		if (this.type() == ANTLRv4Lexer.BEGIN_ACTION) {
+			this.i++;
+			while (this.type() == ANTLRv4Lexer.ACTION_CONTENT) {
+				this.i++;
+			}
+			if (this.type() == ANTLRv4Lexer.END_ACTION) {
+				this.i++;
+			}
+			if (this.type() == ANTLRv4Lexer.QUESTION) {
+				this.i++;
+			}
+			Part action = new Part();
+			action.states = 2;
+			action.nullable = true;
+			action.simple = true;
+			action.endsInTransition = true;
+			return action;
+		}
+
+		ArrayList<Part> alts = null;
+		Part atom = null;
+		if (this.type() == ANTLRv4Lexer.LPAREN) {
+			this.i++;
+			alts = this.altList();
+			if (this.type() != ANTLRv4Lexer.RPAREN) {
+				this.failed = true;
+				return new Part();
+			}
+			this.i++;
+		} else {
+			atom = this.atom();
+		}
+
+		String suffix = this.suffix();
+		if (atom != null && suffix.isEmpty()) {
+			return atom;
+		}
+		if (alts == null) {
+			alts = new ArrayList<>(List.of(atom));
+		}
+		Part block = this.block(alts, suffix);
+		if (suffix.isEmpty()) {
+			return block;
+		}
+
+		Part loop = new Part();
+		loop.states = block.states + (suffix.startsWith("*") ? 3 : suffix.startsWith("+") ? 2 : 0);
+		loop.first = block.first;
+		loop.nullable = block.nullable || !suffix.startsWith("+");
+		loop.anyCharacter = block.anyCharacter;
+		loop.greedyOptional = !suffix.endsWith("?") || suffix.equals("?");
+		loop.unboundedNonGreedy = !loop.greedyOptional && !suffix.startsWith("?") && block.anyCharacter;
+		return loop;
+	}
+
+	/**
+	A block of alternatives.  Without a suffix a single alternative is just
+	that alternative.  Alternatives which are each a single set become one.
+	*/
+	private Part block(ArrayList<Part> alts, String suffix) {
+		if (alts.size() == 1 && suffix.isEmpty()) {
+			return alts.get(0);
+		}
+		Part block = new Part();
+		block.states = 2;
+		int singleSets = 0;
+		Boolean star = suffix.startsWith("*");
+		for (Part alt: alts) {
+			if (alt.singleSet) {
+				singleSets++;
+			} else {
+				block.states += alt.states - (alt.endsInTransition && !star ? 1 : 0);
+			}
+			block.first = union(block.first, alt.first);
+			block.nullable |= alt.nullable;
+			block.anyCharacter |= alt.anyCharacter;
+		}
+		block.states += singleSets > 1 ? 2 : singleSets * 2;
+		if (singleSets > 0 && !star) {
+			block.states--;
+		}
+		if (alts.size() > 1 && singleSets == alts.size()) {
+			block.singleSet = suffix.isEmpty();
+		}
+
+		for (int j = 0; j < alts.size(); j++) {
+			for (int k = j + 1; k < alts.size(); k++) {
+				Part a = alts.get(j);
+				Part b = alts.get(k);
+				if (!(a.singleSet && b.singleSet) && overlap(a.first, b.first)) {
+					this.overlappingDecisions++;
+					return block;
+				}
+			}
+		}
+		return block;
+	}
+
+	/**
+	The atom at i, a literal, a range, a set, a negated set, a wildcard, or a 
+	reference to another rule.
+	*/
+	private Part atom() {
+		Part atom = new Part();
+		atom.states = 2;
+		atom.simple = true;
+		atom.singleSet = true;
+		atom.endsInTransition = true;
+		Token t = this.i < this.tokens.size() ? this.tokens.get(this.i) : null;
+		switch(this.type()) {
+			case ANTLRv4Lexer.STRING_LITERAL:
+				this.i++;
+				int[] from = LexerRuleShape.literal(t.getText());
+				if (this.type() == ANTLRv4Lexer.RANGE) {
+					this.i++;
+					if (this.type() != ANTLRv4Lexer.STRING_LITERAL) {
+						this.failed = true;
+						return atom;
+					}
+					int[] to = LexerRuleShape.literal(this.tokens.get(this.i).getText());
+					this.i++;
+					atom.first = from == null || to == null || from.length != 1 || to.length != 1 
+						? null : IntervalSet.of(from[0], to[0]);
+				} else if (from == null) {
+					atom.first = null;
+				} else if (from.length != 1) {
+					atom.states = from.length + 1;
+					atom.simple = false;
+					atom.singleSet = false;
+					atom.first = from.length == 0 ? new IntervalSet() : IntervalSet.of(from[0]);
+					atom.nullable = from.length == 0;
+				} else {
+					atom.first = IntervalSet.of(from[0]);
+				}
+				break;
+			case ANTLRv4Lexer.LEXER_CHAR_SET:
+				this.i++;
+				atom.first = LexerRuleShape.charSet(t.getText());
+				break;
+			case ANTLRv4Lexer.NOT:
+				this.i++;
+				IntervalSet negated = null;
+				if (this.type() == ANTLRv4Lexer.LPAREN) {
+					this.i++;
+					negated = this.block(this.altList(), "").first;
+					if (this.type() != ANTLRv4Lexer.RPAREN) {
+						this.failed = true;
+						return atom;
+					}
+					this.i++;
+				} else {
+					negated = this.atom().first;
+				}
+				atom.first = negated == null ? null : negated.complement(0, Lexer.MAX_CHAR_VALUE);
+				atom.anyCharacter = true;
+				break;
+			case ANTLRv4Lexer.DOT:
+				this.i++;
+				atom.first = IntervalSet.of(0, Lexer.MAX_CHAR_VALUE);
+				atom.anyCharacter = true;
+				break;
+			case ANTLRv4Lexer.TOKEN_REF:
+			case ANTLRv4Lexer.RULE_REF:
+				this.i++;
+				atom.first = null;
+				atom.singleSet = false;
+				break;
+			default:
+				this.failed = true;
+				return atom;
+		}
+		if (this.type() == ANTLRv4Lexer.LT) {
+			while (this.type() != Token.EOF && this.type() != ANTLRv4Lexer.GT) {
+				this.i++;
+			}
+			this.i++;
+		}
+		return atom;
+	}
+
+	private String suffix() {
+		int type = this.type();
+		if (type != ANTLRv4Lexer.QUESTION && type != ANTLRv4Lexer.STAR && type != ANTLRv4Lexer.PLUS) {
+			return "";
+		}
+		String suffix = this.tokens.get(this.i).getText();
+		this.i++;
+		if (this.type() == ANTLRv4Lexer.QUESTION) {
+			suffix += "?";
+			this.i++;
+		}
+		return suffix;
+	}
+
+	private int type() {
+		return this.i < this.tokens.size() ? this.tokens.get(this.i).getType() : Token.EOF;
+	}
+
+	private static IntervalSet union(IntervalSet a, IntervalSet b) {
+		return a == null || b == null ? null : a.or(b);
+	}
+
+	private static Boolean overlap(IntervalSet a, IntervalSet b) {
+		return a != null && b != null && !a.and(b).isNil();
+	}
+
+}
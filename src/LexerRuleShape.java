@@ -0,0 +1,398 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+The canonical form of the body of a lexer rule, its <code>lexerAltList</code>
+and any lexer commands, such that two rules with the same canonical form
+match the same input and do the same thing with it.
+
+The canonical form is built from the tokens on the default channel between
+the rule's <code>COLON</code> and <code>SEMI</code>, so each collector can
+compute it from the tokens it has.  Differences which do not change what
+is matched are normalized away.
+<ul>
+<li>Literals, character sets, and character ranges all become sets of code 
+points, so <code>'a'</code>, <code>[a]</code>, and <code>'a'..'a'</code> 
+are the same, and a literal of several characters becomes a sequence of
+single characters.</li>
+<li>Alternatives which are each a single set are merged into one set, so 
+<code>'a' | 'b'</code> and <code>[ab]</code> are the same.</li>
+<li>Alternatives are sorted and duplicates removed.</li>
+<li>Parentheses around a single alternative without a suffix are removed.</li>
+</ul>
+Rules with action blocks or predicates have no canonical form, as their 
+behavior depends on code which is not compared.
+*/
+public class LexerRuleShape {
+	private List<Token> tokens = null;
+	private int i = 0;
+	private Boolean failed = false;
+
+	private LexerRuleShape(List<Token> tokens) {
+		super();
+		this.tokens = tokens;
+	}
+
+	/**
+	Return the canonical form of the body of a lexer rule, given as the tokens
+	on the default channel following its <code>COLON</code> up to but not
+	including its <code>SEMI</code>.  Returns null if the rule has an action 
+	block or its body cannot be understood.
+	*/
+	public static String of(List<Token> body, Boolean fragment) {
+		for (Token t: body) {
+			if (t.getType() == ANTLRv4Lexer.BEGIN_ACTION) {
+				return null;
+			}
+		}
+		LexerRuleShape shape = new LexerRuleShape(body);
+		Object block = shape.block(shape.altList());
+		if (shape.failed || shape.i != body.size()) {
+			return null;
+		}
+		String s = block instanceof List ? render((List<?>)block) : render(block);
+		return fragment ? "fragment " + s : s;
+	}
+
+	private ArrayList<ArrayList<Object>> altList() {
+		ArrayList<ArrayList<Object>> alts = new ArrayList<>();
+		alts.add(this.alt());
+		while (!this.failed && this.type() == ANTLRv4Lexer.OR) {
+			this.i++;
+			alts.add(this.alt());
+		}
+		return alts;
+	}
+
+	/**
+	The elements of an alternative, each of them an IntervalSet or a String, 
+	followed by its lexer commands if any.
+	*/
+	private ArrayList<Object> alt() {
+		ArrayList<Object> elements = new ArrayList<>();
+		while (!this.failed) {
+			switch(this.type()) {
+				case Token.EOF:
+				case ANTLRv4Lexer.OR:
+				case ANTLRv4Lexer.RPAREN:
+					return elements;
+				case ANTLRv4Lexer.RARROW:
+					elements.add(this.commands());
+					break;
+				default:
+					this.element(elements);
+					break;
+			}
+		}
+		return elements;
+	}
+
+	private String commands() {
+		StringBuilder sb = new StringBuilder();
+		int depth = 0;
+		while (this.type() != Token.EOF) {
+			int type = this.type();
+			if (depth == 0 && (type == ANTLRv4Lexer.OR || type == ANTLRv4Lexer.RPAREN)) {
+				break;
+			}
+			if (type == ANTLRv4Lexer.LPAREN) {
+				depth++;
+			} else if (type == ANTLRv4Lexer.RPAREN) {
+				depth--;
+			}
+			sb.append(this.tokens.get(this.i).getText());
+			this.i++;
+		}
+		return sb.toString();
+	}
+
+	/**
+	Add the element at i, with its suffix if any, to the elements of an
+	alternative.  Without a suffix, a literal adds each of its characters and
+	a parenthesized single alternative adds each of its elements.
+	*/
+	private void element(ArrayList<Object> elements) {
+		Object atom = null;
+		if (this.type() == ANTLRv4Lexer.NOT) {
+			this.i++;
+			atom = "~" + render(this.atom());
+		} else {
+			atom = this.atom();
+		}
+		String suffix = this.suffix();
+		if (atom instanceof List) {
+			List<?> sequence = (List<?>)atom;
+			if (suffix.isEmpty()) {
+				elements.addAll(sequence);
+			} else if (sequence.size() == 1) {
+				elements.add(render(sequence.get(0)) + suffix);
+			} else {
+				elements.add("(" + render(sequence) + ")" + suffix);
+			}
+		} else {
+			elements.add(suffix.isEmpty() ? atom : render(atom) + suffix);
+		}
+	}
+
+	/**
+	The atom at i, which is an IntervalSet, a String, or a List of them.
+	*/
+	private Object atom() {
+		Token t = this.i < this.tokens.size() ? this.tokens.get(this.i) : null;
+		switch(this.type()) {
+			case ANTLRv4Lexer.STRING_LITERAL:
+				this.i++;
+				int[] from = literal(t.getText());
+				if (this.type() == ANTLRv4Lexer.RANGE) {
+					this.i++;
+					if (this.type() != ANTLRv4Lexer.STRING_LITERAL) {
+						this.failed = true;
+						return "";
+					}
+					int[] to = literal(this.tokens.get(this.i).getText());
+					this.i++;
+					if (from == null || to == null || from.length != 1 || to.length != 1) {
+						this.failed = true;
+						return "";
+					}
+					return IntervalSet.of(from[0], to[0]);
+				}
+				if (from == null) {
+					return t.getText();
+				}
+				ArrayList<Object> sequence = new ArrayList<>();
+				for (int c: from) {
+					sequence.add(IntervalSet.of(c));
+				}
+				return sequence;
+			case ANTLRv4Lexer.LEXER_CHAR_SET:
+				this.i++;
+				IntervalSet set = charSet(t.getText());
+				return set == null ? t.getText() : set;
+			case ANTLRv4Lexer.LPAREN:
+				this.i++;
+				ArrayList<ArrayList<Object>> alts = this.altList();
+				if (this.type() != ANTLRv4Lexer.RPAREN) {
+					this.failed = true;
+					return "";
+				}
+				this.i++;
+				return this.block(alts);
+			case ANTLRv4Lexer.LT:
+				StringBuilder sb = new StringBuilder();
+				while (this.type() != Token.EOF && this.type() != ANTLRv4Lexer.GT) {
+					sb.append(this.tokens.get(this.i).getText());
+					this.i++;
+				}
+				sb.append(">");
+				this.i++;
+				return sb.toString();
+			case ANTLRv4Lexer.DOT:
+			case ANTLRv4Lexer.TOKEN_REF:
+			case ANTLRv4Lexer.RULE_REF:
+				this.i++;
+				return t.getText();
+			default:
+				this.failed = true;
+				return "";
+		}
+	}
+
+	/**
+	A block of alternatives.  A single alternative is returned as a List of
+	its elements, to be spliced into the enclosing alternative if it is not 
+	followed by a suffix.  Alternatives which are all single sets are merged 
+	into one set.  Otherwise the block is rendered with its alternatives 
+	sorted and without duplicates.
+	*/
+	private Object block(ArrayList<ArrayList<Object>> alts) {
+		if (alts.size() == 1) {
+			return alts.get(0);
+		}
+		IntervalSet union = new IntervalSet();
+		for (ArrayList<Object> alt: alts) {
+			if (alt.size() != 1 || !(alt.get(0) instanceof IntervalSet)) {
+				union = null;
+				break;
+			}
+			union.addAll((IntervalSet)alt.get(0));
+		}
+		if (union != null) {
+			return union;
+		}
+		TreeSet<String> rendered = new TreeSet<>();
+		for (ArrayList<Object> alt: alts) {
+			rendered.add(render(alt));
+		}
+		if (rendered.size() == 1) {
+			return alts.get(0);
+		}
+		return "(" + String.join(" | ", rendered) + ")";
+	}
+
+	private Boolean suffixFollows() {
+		int type = this.type();
+		return type == ANTLRv4Lexer.QUESTION || type == ANTLRv4Lexer.STAR || type == ANTLRv4Lexer.PLUS;
+	}
+
+	private String suffix() {
+		if (!this.suffixFollows()) {
+			return "";
+		}
+		String suffix = this.tokens.get(this.i).getText();
+		this.i++;
+		if (this.type() == ANTLRv4Lexer.QUESTION) {
+			suffix += "?";
+			this.i++;
+		}
+		return suffix;
+	}
+
+	private int type() {
+		return this.i < this.tokens.size() ? this.tokens.get(this.i).getType() : Token.EOF;
+	}
+
+	private static String render(List<?> sequence) {
+		StringBuilder sb = new StringBuilder();
+		for (Object o: sequence) {
+			if (sb.length() > 0) {
+				sb.append(" ");
+			}
+			sb.append(render(o));
+		}
+		return sb.toString();
+	}
+
+	/**
+	A set as its code points and ranges of code points, e.g. 
+	<code>[48-57,65]</code>, which unlike its literal text contains no
+	characters needing to be escaped in a fact.
+	*/
+	private static String render(Object o) {
+		if (o instanceof List) {
+			List<?> sequence = (List<?>)o;
+			return sequence.size() == 1 ? render(sequence.get(0)) : "(" + render(sequence) + ")";
+		}
+		if (!(o instanceof IntervalSet)) {
+			return o.toString();
+		}
+		StringBuilder sb = new StringBuilder("[");
+		for (Interval interval: ((IntervalSet)o).getIntervals()) {
+			if (sb.length() > 1) {
+				sb.append(",");
+			}
+			sb.append(interval.a);
+			if (interval.b != interval.a) {
+				sb.append("-").append(interval.b);
+			}
+		}
+		return sb.append("]").toString();
+	}
+
+	/**
+	The code points of a quoted literal, or null if it has an escape which is 
+	not understood.
+	*/
+	static int[] literal(String text) {
+		ArrayList<Integer> codePoints = new ArrayList<>();
+		int end = text.length() - 1;
+		int j = 1;
+		while (j < end) {
+			int[] next = codePoint(text, j, end);
+			if (next == null) {
+				return null;
+			}
+			codePoints.add(next[0]);
+			j = next[1];
+		}
+		return codePoints.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	The code points of a <code>LEXER_CHAR_SET</code>, or null if it has an
+	escape which is not understood, e.g. a Unicode property.
+	*/
+	static IntervalSet charSet(String text) {
+		IntervalSet set = new IntervalSet();
+		int end = text.length() - 1;
+		int j = 1;
+		while (j < end) {
+			int[] from = codePoint(text, j, end);
+			if (from == null) {
+				return null;
+			}
+			j = from[1];
+			if (j + 1 < end && text.charAt(j) == '-') {
+				int[] to = codePoint(text, j + 1, end);
+				if (to == null) {
+					return null;
+				}
+				set.add(from[0], to[0]);
+				j = to[1];
+			} else {
+				set.add(from[0]);
+			}
+		}
+		return set;
+	}
+
+	/**
+	The code point at j, decoding any escape, and the index following it, or 
+	null if it is an escape which is not understood.
+	*/
+	private static int[] codePoint(String text, int j, int end) {
+		int c = text.codePointAt(j);
+		if (c != '\\') {
+			return new int[] {c, j + Character.charCount(c)};
+		}
+		if (j + 1 >= end) {
+			return null;
+		}
+		char e = text.charAt(j + 1);
+		switch(e) {
+			case 'n': return new int[] {'\n', j + 2};
+			case 'r': return new int[] {'\r', j + 2};
+			case 't': return new int[] {'\t', j + 2};
+			case 'b': return new int[] {'\b', j + 2};
+			case 'f': return new int[] {'\f', j + 2};
+			case 'u':
+				try {
+					if (j + 2 < end && text.charAt(j + 2) == '{') {
+						int close = text.indexOf('}', j + 3);
+						if (close < 0 || close > end) {
+							return null;
+						}
+						return new int[] {Integer.parseInt(text.substring(j + 3, close), 16), close + 1};
+					}
+					if (j + 6 > end) {
+						return null;
+					}
+					return new int[] {Integer.parseInt(text.substring(j + 2, j + 6), 16), j + 6};
+				} catch(NumberFormatException ex) {
+					return null;
+				}
+			case 'p':
+			case 'P':
+				return null;
+			default:
+				return new int[] {e, j + 2};
+		}
+	}
+
+}
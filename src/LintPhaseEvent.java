@@ -0,0 +1,43 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import jdk.jfr.*;
+
+/**
+A Java Flight Recorder event for each phase of processing a grammar file, 
+e.g. lexing or parsing, and for each search.  Recorded whenever a flight 
+recording is running, e.g. with 
+<code>java -XX:StartFlightRecording=filename=lint.jfr -jar AntlrLint.jar ...</code>,
+regardless of -stats.
+*/
+@Name("AntlrLint.Phase")
+@Label("AntlrLint Phase")
+@Category("AntlrLint")
+@Description("A phase of processing a grammar file, or a search")
+@StackTrace(false)
+public class LintPhaseEvent extends Event {
+
+	@Label("Name")
+	@Description("Grammar file name, or grammar set for a search")
+	public String name;
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Allocated")
+	@DataAmount
+	public long allocated;
+
+}
@@ -0,0 +1,95 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+What a Linter found in a grammar set, in the order AntlrLint reports it,
+each finding with where the thing it is about is defined if that is known.
+Along with them is what AntlrLint would have printed while loading the 
+grammar files, progress messages and errors apart.
+
+If any file could not be loaded the result has failed, there are no
+findings, and the errors say why.
+*/
+public class LintResult {
+	private GrammarSet grammarSet = null;
+	private GrammarListener listener = null;
+	private LinkedHashMap<Finding, Location> findings = null;
+	private String output = null;
+	private String errors = null;
+
+	public LintResult(
+		GrammarSet grammarSet
+		, GrammarListener listener
+		, LinkedHashMap<Finding, Location> findings
+		, String output
+		, String errors) {
+		super();
+		this.grammarSet = grammarSet;
+		this.listener = listener;
+		this.findings = findings;
+		this.output = output;
+		this.errors = errors;
+	}
+
+	public Boolean hasFailed() {
+		return this.listener == null;
+	}
+
+	public GrammarSet getGrammarSet() {
+		return this.grammarSet;
+	}
+
+	/**
+	Everything collected from the grammar files of the set, or null if the
+	result has failed.
+	*/
+	public GrammarListener getListener() {
+		return this.listener;
+	}
+
+	public ArrayList<Finding> getFindings() {
+		return new ArrayList<>(this.findings.keySet());
+	}
+
+	/**
+	Where the thing a finding is about is defined, or null if that is not 
+	known.
+	*/
+	public Location getLocation(Finding finding) {
+		return this.findings.get(finding);
+	}
+
+	/**
+	The progress messages printed while loading the grammar files.
+	*/
+	public String getOutput() {
+		return this.output;
+	}
+
+	/**
+	The errors printed while loading the grammar files, including any
+	syntax errors.
+	*/
+	public String getErrors() {
+		return this.errors;
+	}
+
+	@Override public String toString() {
+		return this.grammarSet + (this.hasFailed() ? " failed" : " " + this.findings.size() + " findings");
+	}
+
+}
@@ -0,0 +1,125 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+/**
+Wall time and bytes allocated for each phase of processing a grammar file,
+or for each search, along with counts of tokens, parse tree nodes, and rules
+where they are known.  Each phase is also recorded as a LintPhaseEvent.
+
+A phase is timed with
+<code>try (LintStats.Phase p = stats.begin("lex")) { ... }</code> and must
+begin and end on the same thread, allocation being measured per thread.
+*/
+public class LintStats {
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final Boolean ALLOCATION_SUPPORTED = 
+		THREADS instanceof com.sun.management.ThreadMXBean
+		&& ((com.sun.management.ThreadMXBean)THREADS).isThreadAllocatedMemorySupported();
+
+	private String name = null;
+	private ArrayList<String> phases = new ArrayList<>();
+	private ArrayList<Long> nanos = new ArrayList<>();
+	private ArrayList<Long> allocated = new ArrayList<>();
+	private long tokens = -1;
+	private long parseTreeNodes = -1;
+	private long rules = -1;
+
+	public LintStats(String name) {
+		super();
+		this.name = name;
+	}
+
+	public Phase begin(String phase) {
+		return new Phase(phase);
+	}
+
+	public void setTokens(long tokens) {
+		this.tokens = tokens;
+	}
+
+	public void setParseTreeNodes(long parseTreeNodes) {
+		this.parseTreeNodes = parseTreeNodes;
+	}
+
+	public void setRules(long rules) {
+		this.rules = rules;
+	}
+
+	/**
+	Print a line for each phase and a line of counts, if any are known.
+	*/
+	public void print(PrintStream out) {
+		for (int i = 0; i < this.phases.size(); i++) {
+			out.println(String.format("stats %s %s %.3f ms %d bytes allocated"
+				, this.name, this.phases.get(i), this.nanos.get(i) / 1000000.0, this.allocated.get(i)));
+		}
+
+		StringBuilder counts = new StringBuilder();
+		if (this.tokens >= 0) {
+			counts.append(" ").append(this.tokens).append(" tokens");
+		}
+		if (this.parseTreeNodes >= 0) {
+			counts.append(" ").append(this.parseTreeNodes).append(" parse tree nodes");
+		}
+		if (this.rules >= 0) {
+			counts.append(" ").append(this.rules).append(" rules");
+		}
+		if (counts.length() > 0) {
+			out.println("stats " + this.name + counts);
+		}
+	}
+
+	private static long allocatedBytes() {
+		if (!ALLOCATION_SUPPORTED) {
+			return 0;
+		}
+		return ((com.sun.management.ThreadMXBean)THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public class Phase implements AutoCloseable {
+		private String phase = null;
+		private LintPhaseEvent event = new LintPhaseEvent();
+		private long startNanos = 0;
+		private long startAllocated = 0;
+
+		private Phase(String phase) {
+			this.phase = phase;
+			this.event.begin();
+			this.startAllocated = allocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+
+		@Override public void close() {
+			long elapsed = System.nanoTime() - this.startNanos;
+			long bytes = allocatedBytes() - this.startAllocated;
+			phases.add(this.phase);
+			nanos.add(elapsed);
+			allocated.add(bytes);
+
+			this.event.end();
+			if (this.event.shouldCommit()) {
+				this.event.name = name;
+				this.event.phase = this.phase;
+				this.event.allocated = bytes;
+				this.event.commit();
+			}
+		}
+	}
+
+}
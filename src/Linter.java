@@ -0,0 +1,906 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.tree.*;
+
+/**
+Lints grammar sets for a program embedding AntlrLint, such as a build tool,
+an editor, or a test, rather than from the command line.  The grammar files
+are loaded, each from its file or from the source added to its GrammarSet,
+the checks registered with the CheckEngine run, and the searches made, all
+of it returned as a LintResult.
+
+A Linter holds no static state, never exits the JVM, and prints nothing; 
+what the command line would have printed while loading is in the 
+LintResult.  Configure it before sharing it, after which it may lint any
+number of grammar sets, on any number of threads at once, each call keeping
+what it collects to itself.  The grammar files of a set are loaded on the
+executor if there is one, otherwise on the calling thread.
+
+For a caller reporting as it goes, <code>assembleGrammars</code> loads a 
+set, keeping the files loaded for reuse, and the CheckEngine and each of 
+the searches <code>collectFindings</code> makes may be run one by one, 
+each giving what it finds to a consumer as it finds it.
+
+AntlrLint itself lints with a Linter, configured from its command line, 
+through these same public methods.
+*/
+public class Linter {
+
+	/**
+	A mode with at least this many keywords, or a rule with at least this many
+	literal alternatives, is costly.
+	*/
+	private static final int MANY_KEYWORDS = 50;
+	private static final int MANY_LITERAL_ALTERNATIVES = 10;
+
+	/**
+	The categories of the built in checks, each reported in a section of its
+	own, in order.  Findings of other checks follow them.
+	*/
+	public static final List<String> FALLEN_LEAF_CATEGORIES = List.of(
+		Finding.TOKEN, Finding.CHANNEL, Finding.TOKENS_SPEC_TOKEN, Finding.MODE_SPEC);
+
+	private ExecutorService executor = null;
+	private GrammarCache grammarCache = null;
+	private CheckEngine checkEngine = CheckEngine.builtIn();
+	private Boolean verbose = false;
+	private Boolean buildParseTree = true;
+	private Boolean tokenScan = false;
+	private Boolean crossCheck = false;
+	private Boolean stats = false;
+	private Boolean unreachable = false;
+	private Boolean duplicateRules = false;
+	private Boolean costlyConstructs = false;
+	private Boolean shadowedTokens = false;
+
+	public Linter() {
+		super();
+	}
+
+	/**
+	The executor the grammar files of a set are loaded on concurrently, or 
+	null to load them one at a time on the thread linting the set.  As the
+	thread linting the set waits for the files to be loaded it should not be
+	one of the executor's own.  The Linter does not shut it down.
+	*/
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	The cache what is collected from each grammar file is loaded from and
+	stored in, by the file's content, or null for none, the default.
+	*/
+	public void setGrammarCache(GrammarCache grammarCache) {
+		this.grammarCache = grammarCache;
+	}
+
+	/**
+	The CheckEngine whose checks are run, to which further checks may be 
+	registered.  It starts with the built in checks.
+	*/
+	public CheckEngine getCheckEngine() {
+		return this.checkEngine;
+	}
+
+	/**
+	Whether to include tracing of what was searched for in the output.
+	*/
+	public void setVerbose(Boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	Whether to build a parse tree of each grammar file and walk it, the 
+	default, or collect from it during the parse instead.
+	*/
+	public void setBuildParseTree(Boolean buildParseTree) {
+		this.buildParseTree = buildParseTree;
+	}
+
+	/**
+	Whether to collect from the tokens of each grammar file without parsing
+	it, and if so whether to parse it anyway and fail if what was collected
+	differs.
+	*/
+	public void setTokenScan(Boolean tokenScan, Boolean crossCheck) {
+		this.tokenScan = tokenScan;
+		this.crossCheck = crossCheck;
+	}
+
+	/**
+	Whether to include the time each phase of loading each file took in the
+	output.
+	*/
+	public void setStats(Boolean stats) {
+		this.stats = stats;
+	}
+
+	/**
+	Whether to search for parser rules which cannot be reached from the start
+	rules, fragments used only by unreferenced tokens, and modes entered only
+	from modes which cannot be reached.
+	*/
+	public void setUnreachable(Boolean unreachable) {
+		this.unreachable = unreachable;
+	}
+
+	public Boolean getUnreachable() {
+		return this.unreachable;
+	}
+
+	/**
+	Whether to search for lexer rules in the same mode with the same body,
+	which requires collecting the canonical form of each lexer rule.
+	*/
+	public void setDuplicateRules(Boolean duplicateRules) {
+		this.duplicateRules = duplicateRules;
+	}
+
+	public Boolean getDuplicateRules() {
+		return this.duplicateRules;
+	}
+
+	/**
+	Whether to search for lexer constructs which make the lexer large or slow,
+	which requires collecting the estimated cost of each lexer rule.
+	*/
+	public void setCostlyConstructs(Boolean costlyConstructs) {
+		this.costlyConstructs = costlyConstructs;
+	}
+
+	public Boolean getCostlyConstructs() {
+		return this.costlyConstructs;
+	}
+
+	/**
+	Whether the canonical form of each lexer rule is needed, for finding lexer
+	rules with the same body or for finding the keywords among the costly 
+	lexer constructs.
+	*/
+	private Boolean collectsLexerRuleShapes() {
+		return this.duplicateRules || this.costlyConstructs;
+	}
+
+	/**
+	Whether to load the grammar set with the ANTLR tool and search for tokens
+	its lexer never produces.  This reads the grammar files themselves, so
+	does not see sources added to the GrammarSet.
+	*/
+	public void setShadowedTokens(Boolean shadowedTokens) {
+		this.shadowedTokens = shadowedTokens;
+	}
+
+	public Boolean getShadowedTokens() {
+		return this.shadowedTokens;
+	}
+
+	/**
+	Lint the indicated grammar set.  If any of its files could not be loaded
+	the LintResult has failed, and its errors say why.
+	*/
+	public LintResult lint(GrammarSet grammarSet) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		GrammarListener listener = null;
+		LinkedHashMap<Finding, Location> findings = new LinkedHashMap<>();
+		try (PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+			PrintStream err = new PrintStream(errors, true, StandardCharsets.UTF_8)) {
+			listener = this.assembleGrammars(grammarSet, new HashMap<>(), out, err);
+			if (listener != null) {
+				findings = this.collectFindings(listener, grammarSet, out);
+			}
+		}
+		return new LintResult(
+			grammarSet
+			, listener
+			, findings
+			, output.toString(StandardCharsets.UTF_8)
+			, errors.toString(StandardCharsets.UTF_8));
+	}
+
+	/**
+	The start rules given for a grammar set which are parser rules, or the 
+	first parser rule if none were given.
+	*/
+	public static ArrayList<String> startRules(GrammarSet grammarSet, GrammarListener listener) {
+		ArrayList<String> startRules = new ArrayList<>();
+		if (grammarSet.getStartRules().isEmpty()) {
+			startRules.add(listener.getParserRuleNames().get(0));
+		} else {
+			HashSet<String> parserRuleNames = new HashSet<>(listener.getParserRuleNames());
+			for (String s: grammarSet.getStartRules()) {
+				if (parserRuleNames.contains(s)) {
+					startRules.add(s);
+				}
+			}
+		}
+		return startRules;
+	}
+
+	/**
+	Run all of the checks and searches and collect what they found, in the 
+	order they are reported, each with where the thing it is about is 
+	defined, or null if that is not known.  A mode is located where it is
+	declared, which DEFAULT_MODE is not.  With verbose tracing what was 
+	searched for is printed to out.
+	*/
+	public LinkedHashMap<Finding, Location> collectFindings(GrammarListener listener, GrammarSet grammarSet, PrintStream out) {
+		LinkedHashMap<Finding, Location> findings = new LinkedHashMap<>();
+		CheckContext checked = new CheckContext(grammarSet, listener, false);
+		this.checkEngine.run(checked);
+		ArrayList<String> fallenLeafTokens = checked.getNames(Finding.TOKEN);
+		for (String category: FALLEN_LEAF_CATEGORIES) {
+			for (Finding f: checked.getFindings(category)) {
+				findings.putIfAbsent(f, checked.getLocation(f));
+			}
+		}
+		for (Finding f: otherFindings(checked)) {
+			findings.putIfAbsent(f, checked.getLocation(f));
+		}
+		Consumer<Finding> found = f -> findings.putIfAbsent(f, listener.getDefinition(f));
+		if (this.unreachable) {
+			if (listener.getParserRuleNames().size() > 0) {
+				this.searchForUnreachableParserRules(listener.getReferenceIndex(), listener.getParserRuleNames()
+					, startRules(grammarSet, listener), s -> found.accept(new Finding(Finding.UNREACHABLE_PARSER_RULE, s)), out);
+			}
+			this.searchForUnreachableFragments(listener.getReferenceIndex(), listener.getLexerRuleNames()
+				, listener.getLexerFragmentNames(), fallenLeafTokens
+				, s -> found.accept(new Finding(Finding.UNREACHABLE_FRAGMENT, s)), out);
+			this.searchForUnreachableModeSpecs(listener.getReferenceIndex(), listener.getModeSpecs()
+				, s -> found.accept(new Finding(Finding.UNREACHABLE_MODE_SPEC, s)), out);
+		}
+		if (this.duplicateRules) {
+			this.searchForDuplicateLexerRules(listener.getLexerRuleShapes(), group -> {
+				for (String s: group.subList(1, group.size())) {
+					found.accept(new Finding(Finding.DUPLICATE_LEXER_RULE, s, group.get(0)));
+				}
+			}, out);
+		}
+		if (this.costlyConstructs) {
+			this.searchForCostlyLexerConstructs(new LexerCostModel(listener.getLexerRuleCosts(), listener.getLexerRuleShapes())
+				, (cost, finding) -> {
+					Finding definedBy = finding.getCategory().equals(Finding.MANY_KEYWORDS) 
+						? new Finding(Finding.MODE_SPEC, finding.getName()) : finding;
+					findings.putIfAbsent(finding, listener.getDefinition(definedBy));
+				}, out);
+		}
+		if (this.shadowedTokens) {
+			TokenShadowing shadowing = new TokenShadowing(grammarSet.getGrammarFileNames().get(0), grammarSet.getSearchPaths());
+			this.searchForShadowedTokens(shadowing, shadowing.probes()
+				, (s, shadowedBy) -> findings.putIfAbsent(new Finding(Finding.SHADOWED_TOKEN, s, shadowedBy), shadowing.getDefinition(s)), out);
+		}
+		return findings;
+	}
+
+	/**
+	The findings of checks other than those built in, by category in the
+	order each was first found.
+	*/
+	public static ArrayList<Finding> otherFindings(CheckContext checked) {
+		ArrayList<Finding> findings = new ArrayList<>();
+		for (String category: checked.getCategories()) {
+			if (!FALLEN_LEAF_CATEGORIES.contains(category)) {
+				findings.addAll(checked.getFindings(category));
+			}
+		}
+		return findings;
+	}
+
+	/**
+	Search for parser rules which cannot be reached from any of the start rules
+	by following references from parser rule to parser rule.  A rule referred
+	to only by rules which are themselves unreachable is found.
+	*/
+	public void searchForUnreachableParserRules(
+		ReferenceIndex referenceIndex
+		, ArrayList<String> parserRuleNames
+		, ArrayList<String> startRules
+		, Consumer<String> found
+		, PrintStream out) {
+
+		ReferenceGraph graph = referenceIndex.parserRuleGraph();
+		BitSet reached = graph.reachableFrom(startRules);
+		if (this.verbose) out.println("\t" + reached.cardinality() + " parser rules reachable from " + startRules);
+		for (String s: parserRuleNames) {
+			if (!graph.isReached(reached, s)) {
+				found.accept(s);
+			}
+		}
+	}
+
+	/**
+	Search for fragments which cannot be reached from a lexer rule which is
+	not itself a fragment or an unreferenced Lexer Token, i.e. those only
+	used by unreferenced tokens or by other such fragments.  Fragments
+	in <code>fallenLeafTokens</code> were already found by the
+	FallenLeafCheck of Lexer Tokens and are not found again.
+	*/
+	public void searchForUnreachableFragments(
+		ReferenceIndex referenceIndex
+		, ArrayList<String> lexerRuleNames
+		, ArrayList<String> lexerFragmentNames
+		, ArrayList<String> fallenLeafTokens
+		, Consumer<String> found
+		, PrintStream out) {
+
+		if (lexerFragmentNames.isEmpty()) {
+			return;
+		}
+		HashSet<String> notRoots = new HashSet<>(lexerFragmentNames);
+		notRoots.addAll(fallenLeafTokens);
+		ArrayList<String> roots = new ArrayList<>();
+		for (String s: lexerRuleNames) {
+			if (!notRoots.contains(s)) {
+				roots.add(s);
+			}
+		}
+
+		ReferenceGraph graph = referenceIndex.lexerRuleGraph();
+		BitSet reached = graph.reachableFrom(roots);
+		HashSet<String> alreadyFound = new HashSet<>(fallenLeafTokens);
+		for (String s: lexerFragmentNames) {
+			if (this.verbose) out.println("searching for " + s);
+			if (!graph.isReached(reached, s) && !alreadyFound.contains(s)) {
+				found.accept(s);
+			}
+		}
+	}
+
+	/**
+	Search for modes which are entered by a <code>->mode()</code> or 
+	<code>->pushMode()</code> command, but only from modes which cannot
+	themselves be reached from <code>DEFAULT_MODE</code>.  Modes no command
+	enters were already found by the FallenLeafCheck of modeSpecs.
+	*/
+	public void searchForUnreachableModeSpecs(
+		ReferenceIndex referenceIndex
+		, ArrayList<String> modeSpecs
+		, Consumer<String> found
+		, PrintStream out) {
+
+		if (modeSpecs.isEmpty()) {
+			return;
+		}
+		ReferenceGraph graph = referenceIndex.modeGraph();
+		BitSet reached = graph.reachableFrom(List.of(ReferenceIndex.DEFAULT_MODE));
+		for (String s: modeSpecs) {
+			if (this.verbose) out.println("searching for " + s);
+			if (!graph.isReached(reached, s) && referenceIndex.firstRuleReferencingMode(s) != null) {
+				found.accept(s);
+			}
+		}
+	}
+
+	/**
+	Search for lexer rules in the same mode whose bodies have the same 
+	canonical form, as computed by LexerRuleShape.  Each distinct form is 
+	hash-consed to a small integer as it is first seen, so each rule costs one
+	hash lookup rather than a comparison with every other rule.  Each group of
+	two or more rules is found in the order they were collected.
+	*/
+	public void searchForDuplicateLexerRules(
+		Map<String, String[]> lexerRuleShapes
+		, Consumer<List<String>> found
+		, PrintStream out) {
+
+		HashMap<String, Integer> ids = new HashMap<>();
+		ArrayList<ArrayList<String>> groups = new ArrayList<>();
+		for (Map.Entry<String, String[]> entry: lexerRuleShapes.entrySet()) {
+			if (this.verbose) out.println("searching for " + entry.getKey());
+			String[] modeAndShape = entry.getValue();
+			Integer id = ids.putIfAbsent(modeAndShape[0] + " " + modeAndShape[1], groups.size());
+			if (id == null) {
+				groups.add(new ArrayList<>());
+				id = groups.size() - 1;
+			}
+			groups.get(id).add(entry.getKey());
+		}
+		for (ArrayList<String> group: groups) {
+			if (group.size() > 1) {
+				found.accept(group);
+			}
+		}
+	}
+
+	/**
+	Search for lexer constructs known to be expensive, finding them in order 
+	of their estimated cost, the most costly first.  The cost is an estimate
+	of the ATN states the lexer must follow, so constructs of different 
+	kinds may be compared.
+	<ul>
+	<li>A mode with many keywords costs the ATN states of its keywords, as 
+	each is followed from the start of the mode.</li>
+	<li>A rule with many literal alternatives costs its ATN states.</li>
+	<li>A rule with an unbounded non-greedy loop costs twice its ATN states
+	for each such loop, as what follows the loop is followed along with the
+	loop itself at every character.</li>
+	<li>A rule with overlapping sets costs its ATN states for each decision 
+	where they overlap, as each alternative is followed until they differ.</li>
+	</ul>
+	*/
+	public void searchForCostlyLexerConstructs(
+		LexerCostModel model
+		, BiConsumer<Long, Finding> found
+		, PrintStream out) {
+
+		ArrayList<Map.Entry<Long, Finding>> costly = new ArrayList<>();
+		for (String mode: model.getModeNames()) {
+			long keywords = model.getKeywords(mode);
+			if (keywords >= MANY_KEYWORDS) {
+				costly.add(Map.entry(model.getKeywordStates(mode), new Finding(Finding.MANY_KEYWORDS, mode
+					, keywords + " keyword tokens, an estimated " + model.getKeywordStates(mode) + " ATN states")));
+			}
+		}
+		for (Map.Entry<String, LexerRuleCost> entry: model.getCosts().entrySet()) {
+			if (this.verbose) out.println("estimated " + entry.getValue().getStates() + " ATN states for " + entry.getKey());
+			LexerRuleCost cost = entry.getValue();
+			long states = cost.getStates();
+			if (cost.getLiteralAlternatives() >= MANY_LITERAL_ALTERNATIVES) {
+				costly.add(Map.entry(states, new Finding(Finding.KEYWORD_ALTERNATION, entry.getKey()
+					, cost.getLiteralAlternatives() + " literal alternatives")));
+			}
+			int loops = cost.getUnboundedNonGreedyLoops();
+			if (loops > 0) {
+				costly.add(Map.entry(2 * states * loops, new Finding(Finding.NON_GREEDY_LOOP, entry.getKey()
+					, loops + (loops == 1 ? " unbounded non-greedy loop" : " unbounded non-greedy loops"))));
+			}
+			int decisions = cost.getOverlappingDecisions();
+			if (decisions > 0) {
+				costly.add(Map.entry(states * decisions, new Finding(Finding.OVERLAPPING_SETS, entry.getKey()
+					, decisions + (decisions == 1 ? " decision" : " decisions"))));
+			}
+		}
+		costly.sort(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+		for (Map.Entry<Long, Finding> entry: costly) {
+			found.accept(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	Probe each token with its text, finding those another rule matches
+	instead, along with that rule.
+	*/
+	public void searchForShadowedTokens(
+		TokenShadowing shadowing
+		, Map<String, String> probes
+		, BiConsumer<String, String> found
+		, PrintStream out) {
+
+		for (Map.Entry<String, String> entry: probes.entrySet()) {
+			if (this.verbose) out.println("searching for " + entry.getKey());
+			String shadowedBy = shadowing.shadowedBy(entry.getKey(), entry.getValue());
+			if (shadowedBy != null) {
+				found.accept(entry.getKey(), shadowedBy);
+			}
+		}
+	}
+
+	/**
+	Collect everything from the grammar files of the indicated set and the 
+	delegate grammars they import into one GrammarListener.  Files not already present
+	in <code>loadedGrammars</code> are loaded and added to it, so a caller 
+	holding on to <code>loadedGrammars</code> need only remove a file from it
+	to have that file, and only that file, loaded again.
+
+	Files are loaded concurrently by an ImportResolver, each as soon as the
+	grammar naming it has been loaded, but are merged breadth first in the 
+	order they are named so the results do not depend on which finished
+	loading first.  A file named more than once is merged once.
+
+	Returns null if any file could not be loaded.
+	*/
+	public GrammarListener assembleGrammars(
+		GrammarSet grammarSet
+		, HashMap<String, LoadedGrammar> loadedGrammars
+		, PrintStream out
+		, PrintStream err) {
+
+		GrammarListener listener = new GrammarListener();
+		ImportResolver resolver = new ImportResolver(
+			grammarSet.getSearchPaths()
+			, this.executor
+			, fileName -> this.lexAndParseGrammar(fileName, grammarSet)
+			, loadedGrammars
+			, grammarSet.getSources());
+		ArrayDeque<String> fileNames = new ArrayDeque<>();
+		HashMap<Path, Path> namedBy = new HashMap<>();
+		for (String fileName: grammarSet.getGrammarFileNames()) {
+			if (namedBy.putIfAbsent(ImportResolver.key(fileName), ImportResolver.key(fileName)) == null) {
+				fileNames.add(fileName);
+				resolver.prefetch(fileName);
+			}
+		}
+
+		while (!fileNames.isEmpty()) {
+			String fileName = fileNames.remove();
+			LoadedGrammar loaded = loadedGrammars.get(fileName);
+			if (loaded == null) {
+				loaded = this.awaitGrammar(resolver.prefetch(fileName), out, err);
+				if (loaded == null) {
+					return null;
+				}
+				loadedGrammars.put(fileName, loaded);
+			}
+			listener.merge(loaded.getListener());
+
+			Path key = ImportResolver.key(fileName);
+			for (String delegate: resolver.delegatesOf(loaded)) {
+				Path delegateKey = ImportResolver.key(delegate);
+				if (namedBy.containsKey(delegateKey)) {
+					warnImportCycle(namedBy, key, delegateKey, out);
+					continue;
+				}
+				namedBy.put(delegateKey, key);
+				fileNames.add(delegate);
+				resolver.prefetch(delegate);
+			}
+		}
+
+		return listener;
+	}
+
+	/**
+	Wait for a grammar file to be loaded, then print its progress messages.
+	Returns null, having printed the error, if it could not be loaded.
+	*/
+	private LoadedGrammar awaitGrammar(Future<LoadedGrammar> future, PrintStream out, PrintStream err) {
+		LoadedGrammar loaded = null;
+		try {
+			loaded = future.get();
+		} catch(InterruptedException | ExecutionException e) {
+			err.println("Error loading grammar " + e);
+			return null;
+		}
+		out.print(loaded.getProgressText());
+		err.print(loaded.getSyntaxErrorText());
+		if (loaded.hasFailed()) {
+			err.println(loaded.getErrorMessage());
+			if (loaded.getException() != null) {
+				loaded.getException().printStackTrace(err);
+			}
+			return null;
+		}
+		return loaded;
+	}
+
+	/**
+	A grammar naming one already named may be a diamond, two grammars
+	importing the same one, which is harmless, or a cycle, a grammar importing
+	one of the grammars which led to it being imported.  Print the cycle.
+	*/
+	private static void warnImportCycle(HashMap<Path, Path> namedBy, Path importing, Path imported, PrintStream out) {
+		ArrayList<String> cycle = new ArrayList<>();
+		cycle.add(imported.getFileName().toString());
+		Path p = importing;
+		while (true) {
+			cycle.add(0, p.getFileName().toString());
+			if (p.equals(imported)) {
+				out.println("import cycle " + String.join(" -> ", cycle));
+				return;
+			}
+			Path next = namedBy.get(p);
+			if (next == null || next.equals(p)) {
+				return;
+			}
+			p = next;
+		}
+	}
+
+	/**
+	Lex and parse the indicated grammar file, then walk the parse tree with
+	a GrammarListener which will collect tokens of possible interest, lexer 
+	rules, and parser rules.
+
+	Without a parse tree none is built, and the same things are
+	collected into the GrammarListener during the parse by a
+	StreamingGrammarListener instead.
+
+	With a token scan the file is not parsed at all, a TokenScanner collecting
+	from the tokens instead.  An entry in the GrammarCache is still used if
+	there is one, but what the TokenScanner collected is not stored there.
+	With a cross check as well the file is also parsed, and the load fails if
+	what was collected differs.
+
+	The file is memory mapped rather than read, and if it is all ASCII, as
+	grammar files nearly always are, lexed directly from the mapping by a
+	MappedCharStream.  A file whose source was added to the GrammarSet is
+	lexed from that instead, and need not exist.
+
+	If the GrammarCache has an entry for the file's content, what the 
+	GrammarListener collected is loaded from there instead.  The same
+	progress messages are printed either way so the output does not depend
+	on the state of the cache.
+	*/
+	private LoadedGrammar lexAndParseGrammar(String fileName, GrammarSet grammarSet) {
+		LoadedGrammar loaded = new LoadedGrammar(fileName);
+		loaded.getListener().setCollectLexerRuleShapes(this.collectsLexerRuleShapes());
+		loaded.getListener().setCollectLexerRuleCosts(this.costlyConstructs);
+		this.lexAndParseGrammar(loaded, grammarSet.getSource(fileName));
+		if (this.stats && !loaded.hasFailed()) {
+			GrammarListener listener = loaded.getListener();
+			loaded.getStats().setRules(listener.getLexerRuleNames().size() + listener.getParserRuleNames().size());
+			loaded.getStats().print(loaded.getProgress());
+		}
+		return loaded;
+	}
+
+	@SuppressWarnings("try")
+	private void lexAndParseGrammar(LoadedGrammar loaded, String source) {
+		String fileName = loaded.getFileName();
+		GrammarListener listener = loaded.getListener();
+		PrintStream progress = loaded.getProgress();
+		LintStats fileStats = loaded.getStats();
+
+		ByteBuffer content = null;
+		try (LintStats.Phase p = fileStats.begin("read")) {
+			content = source == null 
+				? MappedCharStream.map(Paths.get(fileName))  //map the file
+				: ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+		} catch(Exception e) {
+			loaded.failed("Error reading " + fileName + " " + e, null);
+			return;
+		}
+
+		String hash = null;
+		if (this.grammarCache != null) {
+			Boolean cached = false;
+			try (LintStats.Phase p = fileStats.begin("cache load")) {
+				hash = GrammarCache.hash(content);
+				cached = !(this.tokenScan && this.crossCheck) && this.grammarCache.load(hash, loaded);
+			}
+			if (cached) {
+				progress.println("lexing " + fileName);
+				if (this.tokenScan) {
+					progress.println("scanning " + fileName);
+				} else {
+					progress.println("parsing " + fileName);
+					if (loaded.getPredictionMode().equals("LL")) {
+						progress.println("reparsing " + fileName + " with LL prediction");
+					} else if (this.verbose) {
+						progress.println("parsed " + fileName + " with SLL prediction");
+					}
+				}
+				if (this.verbose) progress.println("loaded " + fileName + " from cache entry " + hash);
+				if (this.buildParseTree && !this.tokenScan) {
+					progress.println("walking parse tree with " + loaded.getListener().getClass().getName());
+				} else if (this.verbose && !this.tokenScan) {
+					progress.println("collected " + fileName + " with " + StreamingGrammarListener.class.getName());
+				}
+				return;
+			}
+		}
+
+		/*
+		The tokens are all lexed up front, rather than as the parser asks for 
+		them, so the time spent lexing can be told from the time spent parsing.
+		*/
+		progress.println("lexing " + fileName);
+		CommonTokenStream tokens = null;
+		try (LintStats.Phase p = fileStats.begin("lex")) {
+			CharStream cs = MappedCharStream.fromBuffer(content, fileName);
+			ANTLRv4Lexer lexer = new ANTLRv4Lexer(cs);  //instantiate a lexer
+			lexer.removeErrorListeners();
+			lexer.addErrorListener(loaded.getSyntaxErrorListener());
+			tokens = new CommonTokenStream(lexer); //scan stream for tokens
+			tokens.fill();
+		}
+		fileStats.setTokens(tokens.size());
+
+		if (this.tokenScan) {
+			progress.println("scanning " + fileName);
+			try (LintStats.Phase p = fileStats.begin("scan")) {
+				new TokenScanner(listener, tokens).scan();
+			} catch(Exception e) {
+				loaded.failed(TokenScanner.class.getName() + " error " + e, e);
+				return;
+			}
+			if (this.crossCheck) {
+				try (LintStats.Phase p = fileStats.begin("cross check")) {
+					this.crossCheckTokenScan(tokens, loaded);
+				}
+			}
+			return;
+		}
+
+		progress.println("parsing " + fileName);
+		ParseTree tree = null;
+		try (LintStats.Phase p = fileStats.begin("parse")) {
+			tree = parseGrammarSpec(tokens, loaded, this.buildParseTree);
+		}
+		if (tree == null) {
+			return;
+		}
+		if (this.verbose && loaded.getPredictionMode().equals("SLL")) {
+			progress.println("parsed " + fileName + " with SLL prediction");
+		}
+		
+		if (this.buildParseTree) {
+			ParseTreeWalker walker = new ParseTreeWalker();
+	
+			progress.println("walking parse tree with " + listener.getClass().getName());
+	
+			try (LintStats.Phase p = fileStats.begin("walk")) {
+				walker.walk(listener, tree);
+			} catch(Exception e) {
+				loaded.failed(listener.getClass().getName() + " error " + e, e);
+				return;
+			}
+			if (this.stats) {
+				fileStats.setParseTreeNodes(countNodes(tree));
+			}
+		} else if (this.verbose) {
+			progress.println("collected " + fileName + " with " + StreamingGrammarListener.class.getName());
+		}
+
+		/*
+		A cache entry holds only the facts, so a file with syntax errors is 
+		not cached, lest a later run load it without reporting them.
+		*/
+		if (this.grammarCache != null && loaded.getSyntaxErrorText().isEmpty()) {
+			try (LintStats.Phase p = fileStats.begin("cache store")) {
+				this.grammarCache.store(hash, loaded);
+			}
+		}
+	}
+
+	/**
+	Count the nodes of a parse tree, both rule contexts and terminals.
+	*/
+	private static long countNodes(ParseTree tree) {
+		long count = 0;
+		ArrayDeque<ParseTree> stack = new ArrayDeque<>();
+		stack.push(tree);
+		while (!stack.isEmpty()) {
+			ParseTree node = stack.pop();
+			count++;
+			for (int i = 0; i < node.getChildCount(); i++) {
+				stack.push(node.getChild(i));
+			}
+		}
+		return count;
+	}
+	
+	/**
+	Parse the tokens of a grammar file already scanned by a TokenScanner and
+	walk the parse tree, marking the LoadedGrammar as failed if what the
+	GrammarListener collected differs from what the TokenScanner collected,
+	or if the GrammarListener could not walk what the TokenScanner accepted.
+	The facts are compared sorted, the order in which names are first seen 
+	being of no consequence.
+	*/
+	private void crossCheckTokenScan(CommonTokenStream tokens, LoadedGrammar loaded) {
+		PrintStream progress = loaded.getProgress();
+		LoadedGrammar parsed = new LoadedGrammar(loaded.getFileName());
+		parsed.getListener().collectSameAs(loaded.getListener());
+
+		tokens.seek(0);
+		ParseTree tree = parseGrammarSpec(tokens, parsed);
+		loaded.getSyntaxErrors().print(parsed.getSyntaxErrorText());
+		if (tree == null) {
+			loaded.failed(parsed.getErrorMessage(), null);
+			return;
+		}
+		try {
+			new ParseTreeWalker().walk(parsed.getListener(), tree);
+		} catch(Exception e) {
+			loaded.failed("token scan of " + loaded.getFileName() + " differs from parse, " 
+				+ parsed.getListener().getClass().getName() + " error " + e, e);
+			return;
+		}
+
+		TreeSet<String> scannedFacts = factsOf(loaded.getListener());
+		TreeSet<String> parsedFacts = factsOf(parsed.getListener());
+		if (scannedFacts.equals(parsedFacts)) {
+			if (this.verbose) progress.println("token scan of " + loaded.getFileName() + " matches parse");
+			return;
+		}
+
+		for (String fact: scannedFacts) {
+			if (!parsedFacts.contains(fact)) {
+				progress.println("only in token scan " + fact);
+			}
+		}
+		for (String fact: parsedFacts) {
+			if (!scannedFacts.contains(fact)) {
+				progress.println("only in parse " + fact);
+			}
+		}
+		loaded.failed("token scan of " + loaded.getFileName() + " differs from parse", null);
+	}
+
+	private static TreeSet<String> factsOf(GrammarListener listener) {
+		StringWriter sw = new StringWriter();
+		try (PrintWriter out = new PrintWriter(sw)) {
+			listener.writeFacts(out);
+		}
+		return new TreeSet<>(Arrays.asList(sw.toString().split("\\R")));
+	}
+
+	/**
+	Parse the tokens of a grammar file, returning the parse tree or null if
+	parsing failed, in which case the LoadedGrammar has been marked as failed.
+
+	Nearly all grammar files parse correctly with the faster SLL prediction
+	mode, so try that first, bailing out at the first syntax error.  Only if
+	that fails is the file parsed again with full LL prediction and the 
+	default error recovery, syntax errors being reported to the LoadedGrammar.
+	*/
+	public static ParseTree parseGrammarSpec(CommonTokenStream tokens, LoadedGrammar loaded) {
+		return parseGrammarSpec(tokens, loaded, true);
+	}
+
+	/**
+	If buildParseTree is false the parser does not build a parse tree, the
+	returned context has no children, and what the LoadedGrammar's 
+	GrammarListener would have collected from the tree is collected during
+	the parse by a StreamingGrammarListener.  If the SLL parse fails what was
+	collected is discarded and collected again during the LL parse.
+	*/
+	public static ParseTree parseGrammarSpec(CommonTokenStream tokens, LoadedGrammar loaded, Boolean buildParseTree) {
+		PrintStream progress = loaded.getProgress();
+		ANTLRv4Parser parser = new ANTLRv4Parser(tokens);  //parse the tokens	
+
+		if (!buildParseTree) {
+			parser.setBuildParseTree(false);
+			parser.addParseListener(new StreamingGrammarListener(loaded.getListener(), tokens));
+		}
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+
+		ParseTree tree = null;
+		try {
+			tree = parser.grammarSpec(); // parse the content and get the tree
+			loaded.setPredictionMode("SLL");
+		} catch(ParseCancellationException sllFailure) {
+			loaded.setPredictionMode("LL");
+			progress.println("reparsing " + loaded.getFileName() + " with LL prediction");
+			tokens.seek(0);
+			parser.reset();
+			if (!buildParseTree) {
+				loaded.resetListener();
+				parser.removeParseListeners();
+				parser.addParseListener(new StreamingGrammarListener(loaded.getListener(), tokens));
+			}
+			parser.addErrorListener(loaded.getSyntaxErrorListener());
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			try {
+				tree = parser.grammarSpec();
+			} catch(Exception e) {
+				loaded.failed("Parser error " + e, null);
+				return null;
+			}
+		} catch(Exception e) {
+			loaded.failed("Parser error " + e, null);
+			return null;
+		}
+
+		return tree;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import org.antlr.v4.runtime.*;
+
+/**
+The result of lexing, parsing, and walking a single grammar file.
+
+Grammar files are loaded concurrently, each with its own GrammarListener.
+Progress messages and any error are held here until the file's turn comes
+to be merged, so the output appears in the same order as if the files had
+been processed one at a time.  Syntax errors reported while lexing and 
+parsing the file are held here too, apart from the progress messages.
+*/
+public class LoadedGrammar {
+	private String fileName = null;
+	private GrammarListener listener = new GrammarListener();
+	private String predictionMode = null;
+	private ByteArrayOutputStream progressBytes = new ByteArrayOutputStream();
+	private PrintStream progress = new PrintStream(progressBytes, true);
+	private ByteArrayOutputStream syntaxErrorBytes = new ByteArrayOutputStream();
+	private PrintStream syntaxErrors = new PrintStream(syntaxErrorBytes, true);
+	private String errorMessage = null;
+	private Exception exception = null;
+	private LintStats stats = null;
+
+	public LoadedGrammar(String fileName) {
+		super();
+		this.fileName = fileName;
+		this.stats = new LintStats(fileName);
+	}
+
+	/**
+	Record that loading this file failed.  The exception, if provided, will have
+	its stack trace printed along with the message.
+	*/
+	public void failed(String errorMessage, Exception exception) {
+		this.errorMessage = errorMessage;
+		this.exception = exception;
+	}
+
+	public Boolean hasFailed() {
+		return this.errorMessage != null;
+	}
+
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	public GrammarListener getListener() {
+		return this.listener;
+	}
+
+	public void setListener(GrammarListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	Discard what the listener collected, replacing it with one which collects
+	the same things.
+	*/
+	public void resetListener() {
+		GrammarListener listener = new GrammarListener();
+		listener.collectSameAs(this.listener);
+		this.listener = listener;
+	}
+
+	/**
+	The prediction mode, SLL or LL, which was needed to parse this file.
+	*/
+	public String getPredictionMode() {
+		return this.predictionMode;
+	}
+
+	public void setPredictionMode(String predictionMode) {
+		this.predictionMode = predictionMode;
+	}
+
+	public PrintStream getProgress() {
+		return this.progress;
+	}
+
+	public String getProgressText() {
+		return this.progressBytes.toString();
+	}
+
+	public PrintStream getSyntaxErrors() {
+		return this.syntaxErrors;
+	}
+
+	public String getSyntaxErrorText() {
+		return this.syntaxErrorBytes.toString();
+	}
+
+	/**
+	An error listener reporting syntax errors as ConsoleErrorListener does,
+	but to this file's syntax errors rather than standard error.
+	*/
+	public ANTLRErrorListener getSyntaxErrorListener() {
+		return new BaseErrorListener() {
+			@Override public void syntaxError(
+				Recognizer<?, ?> recognizer
+				, Object offendingSymbol
+				, int line
+				, int charPositionInLine
+				, String msg
+				, RecognitionException e) {
+				LoadedGrammar.this.syntaxErrors.println("line " + line + ":" + charPositionInLine + " " + msg);
+			}
+		};
+	}
+
+	public String getErrorMessage() {
+		return this.errorMessage;
+	}
+
+	public Exception getException() {
+		return this.exception;
+	}
+
+	public LintStats getStats() {
+		return this.stats;
+	}
+
+}
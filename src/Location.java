@@ -0,0 +1,54 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.antlr.v4.runtime.*;
+
+/**
+Where something is defined in a grammar file, from the token defining it.
+Lines and columns both start at 1.
+*/
+public class Location {
+	private String fileName = null;
+	private int line = 0;
+	private int column = 0;
+
+	public Location(String fileName, int line, int column) {
+		super();
+		this.fileName = fileName;
+		this.line = line;
+		this.column = column;
+	}
+
+	public Location(Token token) {
+		this(token.getTokenSource().getSourceName(), token.getLine(), token.getCharPositionInLine() + 1);
+	}
+
+	public String getFileName() {
+		return this.fileName;
+	}
+
+	public int getLine() {
+		return this.line;
+	}
+
+	public int getColumn() {
+		return this.column;
+	}
+
+	@Override public String toString() {
+		return this.fileName + ":" + this.line + ":" + this.column;
+	}
+
+}
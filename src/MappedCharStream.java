@@ -0,0 +1,154 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.*;
+
+/**
+A CharStream over a memory mapped grammar file containing only ASCII, each
+byte being one character, so the file's content is never copied onto the 
+heap.  Only the text of tokens, as it is asked for, is.
+
+Use <code>map</code> to map a file and <code>fromBuffer</code> to get a
+CharStream for it, which is a MappedCharStream if the content is all ASCII
+or otherwise the content decoded as UTF-8 into a CharStreams one.
+*/
+public class MappedCharStream implements CharStream {
+	private static final long NOT_ASCII = 0x8080808080808080L;
+
+	private ByteBuffer buffer = null;
+	private int size = 0;
+	private int position = 0;
+	private String sourceName = null;
+
+	private MappedCharStream(ByteBuffer buffer, String sourceName) {
+		super();
+		this.buffer = buffer.slice();
+		this.size = this.buffer.remaining();
+		this.sourceName = sourceName;
+	}
+
+	/**
+	Map the indicated file read only.  The mapping lasts until the buffer is 
+	garbage collected, the file itself being closed before returning.
+	*/
+	public static ByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	Return a CharStream over the content remaining in the buffer.
+	*/
+	public static CharStream fromBuffer(ByteBuffer buffer, String sourceName) {
+		if (isAscii(buffer)) {
+			return new MappedCharStream(buffer, sourceName);
+		}
+		return CharStreams.fromString(StandardCharsets.UTF_8.decode(buffer.duplicate()).toString(), sourceName);
+	}
+
+	/**
+	Return true if no byte remaining in the buffer has its high bit set, 
+	checking eight bytes at a time.
+	*/
+	public static Boolean isAscii(ByteBuffer buffer) {
+		int i = buffer.position();
+		int limit = buffer.limit();
+		for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+			if ((buffer.getLong(i) & NOT_ASCII) != 0) {
+				return false;
+			}
+		}
+		for (; i < limit; i++) {
+			if (buffer.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override public void consume() {
+		if (this.position >= this.size) {
+			throw new IllegalStateException("cannot consume EOF");
+		}
+		this.position++;
+	}
+
+	@Override public int LA(int i) {
+		int index = 0;
+		if (i > 0) {
+			index = this.position + i - 1;
+		} else if (i < 0) {
+			index = this.position + i;
+		} else {
+			return 0;
+		}
+		if (index < 0 || index >= this.size) {
+			return IntStream.EOF;
+		}
+		return this.buffer.get(index);
+	}
+
+	/**
+	The whole file is available, so marks need not do anything.
+	*/
+	@Override public int mark() {
+		return -1;
+	}
+
+	@Override public void release(int marker) {
+	}
+
+	@Override public int index() {
+		return this.position;
+	}
+
+	@Override public void seek(int index) {
+		this.position = Math.min(Math.max(index, 0), this.size);
+	}
+
+	@Override public int size() {
+		return this.size;
+	}
+
+	@Override public String getSourceName() {
+		if (this.sourceName == null || this.sourceName.isEmpty()) {
+			return UNKNOWN_SOURCE_NAME;
+		}
+		return this.sourceName;
+	}
+
+	@Override public String getText(Interval interval) {
+		int start = Math.min(interval.a, this.size);
+		int stop = Math.min(interval.b, this.size - 1);
+		if (start > stop) {
+			return "";
+		}
+		byte[] bytes = new byte[stop - start + 1];
+		this.buffer.get(start, bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	@Override public String toString() {
+		return this.getText(Interval.of(0, this.size - 1));
+	}
+
+}
@@ -0,0 +1,250 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import org.antlr.v4.analysis.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.tool.*;
+
+/**
+The size and shape of a parser rule in the ATN the ANTLR tool builds from
+its grammar, which is what a generated parser's size and prediction cost
+follow: the number of ATN states in the rule, the number of decisions made
+in it and how many of those can be made by looking a single token ahead,
+whether the rule is left recursive, and how many rules refer to it and it
+refers to.
+
+A decision is LL(1) if the sets of tokens which may begin each of its
+alternatives do not overlap, as the tool determines when it analyzes the
+grammar.  The generated parser makes such a decision with a switch on the
+next token.  Any other decision is made by adaptive prediction, which may
+look any number of tokens ahead.
+*/
+public class ParserRuleMetrics {
+	/**
+	The names of the metrics, in the order they are written, by which they
+	may also be sorted.
+	*/
+	public static final List<String> COLUMNS = List.of(
+		"rule", "states", "decisions", "ll1", "nonLL1", "leftRecursive", "fanIn", "fanOut");
+
+	private String ruleName = null;
+	private Location location = null;
+	private int states = 0;
+	private int decisions = 0;
+	private int ll1Decisions = 0;
+	private Boolean leftRecursive = false;
+	private int fanIn = 0;
+	private int fanOut = 0;
+
+	private ParserRuleMetrics(String ruleName, Location location) {
+		super();
+		this.ruleName = ruleName;
+		this.location = location;
+	}
+
+	/**
+	Measure each of the indicated parser rules found in the grammar, which 
+	must have been processed by the tool, in the order given.  Fan-in and 
+	fan-out are taken from the graph of references between parser rules.
+	*/
+	public static ArrayList<ParserRuleMetrics> measure(Grammar grammar, List<String> ruleNames, ReferenceGraph graph) {
+		ATN atn = grammar.atn;
+		int[] states = new int[grammar.rules.size()];
+		for (ATNState s: atn.states) {
+			if (s != null && s.ruleIndex >= 0 && s.ruleIndex < states.length) {
+				states[s.ruleIndex]++;
+			}
+		}
+		int[] decisions = new int[states.length];
+		int[] ll1Decisions = new int[states.length];
+		LL1Analyzer analyzer = new LL1Analyzer(atn);
+		for (DecisionState s: atn.decisionToState) {
+			if (s.ruleIndex < 0 || s.ruleIndex >= states.length) {
+				continue;
+			}
+			decisions[s.ruleIndex]++;
+			if (isLL1(grammar, analyzer, s)) {
+				ll1Decisions[s.ruleIndex]++;
+			}
+		}
+
+		ArrayList<ParserRuleMetrics> metrics = new ArrayList<>();
+		for (String name: ruleNames) {
+			Rule r = grammar.getRule(name);
+			if (r == null || r.index >= states.length) {
+				continue;
+			}
+			ParserRuleMetrics m = new ParserRuleMetrics(name
+				, new Location(r.g.fileName, r.ast.getLine(), r.ast.getCharPositionInLine() + 1));
+			m.states = states[r.index];
+			m.decisions = decisions[r.index];
+			m.ll1Decisions = ll1Decisions[r.index];
+			m.leftRecursive = r instanceof LeftRecursiveRule;
+			m.fanIn = graph.fanIn(name);
+			m.fanOut = graph.fanOut(name);
+			metrics.add(m);
+		}
+		return metrics;
+	}
+
+	/**
+	Whether the tool found the alternatives of a decision begin with disjoint
+	sets of tokens.  If the tool stopped before analyzing the grammar they
+	are found here the same way, a non-greedy decision never being LL(1).
+	*/
+	private static Boolean isLL1(Grammar grammar, LL1Analyzer analyzer, DecisionState s) {
+		IntervalSet[] look = null;
+		if (grammar.decisionLOOK != null && s.decision < grammar.decisionLOOK.size()) {
+			look = grammar.decisionLOOK.get(s.decision);
+		} else if (!s.nonGreedy) {
+			look = analyzer.getDecisionLookahead(s);
+		}
+		return look != null && AnalysisPipeline.disjoint(look);
+	}
+
+	/**
+	Order metrics by the indicated column, numbers and left recursion 
+	descending and rule names ascending, ties keeping their order.  Returns 
+	null if there is no such column.
+	*/
+	public static Comparator<ParserRuleMetrics> comparator(String column) {
+		switch (column) {
+			case "rule":
+				return Comparator.comparing(ParserRuleMetrics::getRuleName);
+			case "states":
+				return Comparator.comparingInt(ParserRuleMetrics::getStates).reversed();
+			case "decisions":
+				return Comparator.comparingInt(ParserRuleMetrics::getDecisions).reversed();
+			case "ll1":
+				return Comparator.comparingInt(ParserRuleMetrics::getLL1Decisions).reversed();
+			case "nonLL1":
+				return Comparator.comparingInt(ParserRuleMetrics::getNonLL1Decisions).reversed();
+			case "leftRecursive":
+				return Comparator.comparing(ParserRuleMetrics::isLeftRecursive).reversed();
+			case "fanIn":
+				return Comparator.comparingInt(ParserRuleMetrics::getFanIn).reversed();
+			case "fanOut":
+				return Comparator.comparingInt(ParserRuleMetrics::getFanOut).reversed();
+			default:
+				return null;
+		}
+	}
+
+	public String getRuleName() {
+		return this.ruleName;
+	}
+
+	/**
+	Where the rule is defined, which may be an imported grammar.
+	*/
+	public Location getLocation() {
+		return this.location;
+	}
+
+	public int getStates() {
+		return this.states;
+	}
+
+	public int getDecisions() {
+		return this.decisions;
+	}
+
+	public int getLL1Decisions() {
+		return this.ll1Decisions;
+	}
+
+	public int getNonLL1Decisions() {
+		return this.decisions - this.ll1Decisions;
+	}
+
+	public Boolean isLeftRecursive() {
+		return this.leftRecursive;
+	}
+
+	/**
+	The number of parser rules referring to this one.
+	*/
+	public int getFanIn() {
+		return this.fanIn;
+	}
+
+	/**
+	The number of parser rules this one refers to.
+	*/
+	public int getFanOut() {
+		return this.fanOut;
+	}
+
+	/**
+	The column headings of <code>toCsv()</code>, preceded by the indicated
+	headings.
+	*/
+	public static String csvHeader(String... preceding) {
+		ArrayList<String> headings = new ArrayList<>(Arrays.asList(preceding));
+		headings.addAll(COLUMNS);
+		headings.add("location");
+		return String.join(",", headings);
+	}
+
+	/**
+	The metrics as a line of comma separated values, in the order of
+	<code>COLUMNS</code> followed by the location, quoted where necessary.
+	*/
+	public String toCsv() {
+		return String.join(","
+			, this.ruleName
+			, String.valueOf(this.states)
+			, String.valueOf(this.decisions)
+			, String.valueOf(this.ll1Decisions)
+			, String.valueOf(this.getNonLL1Decisions())
+			, String.valueOf(this.leftRecursive)
+			, String.valueOf(this.fanIn)
+			, String.valueOf(this.fanOut)
+			, csvField(this.location.toString()));
+	}
+
+	/**
+	Quote a field if it contains a comma, a quote, or a line break, doubling
+	any quotes.
+	*/
+	public static String csvField(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+			return s;
+		}
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+
+	@Override public String toString() {
+		return this.ruleName
+			+ " at "
+			+ this.location
+			+ " "
+			+ this.states
+			+ " ATN states, "
+			+ this.decisions
+			+ (this.decisions == 1 ? " decision, " : " decisions, ")
+			+ this.getNonLL1Decisions()
+			+ " not LL(1), "
+			+ (this.leftRecursive ? "left recursive, " : "")
+			+ "referred to by "
+			+ this.fanIn
+			+ " and referring to "
+			+ this.fanOut
+			+ " parser rules";
+	}
+
+}
@@ -0,0 +1,107 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+References between names, e.g. from each parser rule to the parser rules it
+refers to, as a directed graph over the ids of a SymbolTable.  The edges
+from each id are kept in one array, at <code>offsets[id]</code> up to
+<code>offsets[id + 1]</code>, so the graph takes two ints per name plus one
+per edge however many rules a grammar has.
+*/
+public class ReferenceGraph {
+	private SymbolTable symbols = null;
+	private int[] offsets = null;
+	private int[] targets = null;
+	private int[] fanIns = null;
+
+	public ReferenceGraph(SymbolTable symbols, int[] offsets, int[] targets) {
+		super();
+		this.symbols = symbols;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	Return the set of ids reachable from the indicated names, including the
+	names themselves.  Each id is set in the BitSet and pushed on the worklist
+	at most once, so this takes time linear in the size of the graph.
+	*/
+	public BitSet reachableFrom(Collection<String> roots) {
+		BitSet reached = new BitSet(this.symbols.size());
+		int[] worklist = new int[this.symbols.size()];
+		int top = 0;
+		for (String s: roots) {
+			int id = this.symbols.lookup(s);
+			if (id >= 0 && !reached.get(id)) {
+				reached.set(id);
+				worklist[top++] = id;
+			}
+		}
+		while (top > 0) {
+			int id = worklist[--top];
+			if (id + 1 >= this.offsets.length) {
+				continue;
+			}
+			for (int i = this.offsets[id]; i < this.offsets[id + 1]; i++) {
+				int target = this.targets[i];
+				if (!reached.get(target)) {
+					reached.set(target);
+					worklist[top++] = target;
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	Return true if the indicated name is in a set returned by
+	<code>reachableFrom</code>.
+	*/
+	public Boolean isReached(BitSet reached, String name) {
+		int id = this.symbols.lookup(name);
+		return id >= 0 && reached.get(id);
+	}
+
+	/**
+	Return the number of names the indicated name refers to.
+	*/
+	public int fanOut(String name) {
+		int id = this.symbols.lookup(name);
+		if (id < 0 || id + 1 >= this.offsets.length) {
+			return 0;
+		}
+		return this.offsets[id + 1] - this.offsets[id];
+	}
+
+	/**
+	Return the number of names referring to the indicated name.  The count
+	for every name is taken in one pass over the edges the first time this
+	is called.
+	*/
+	public int fanIn(String name) {
+		if (this.fanIns == null) {
+			int[] counts = new int[this.symbols.size()];
+			for (int target: this.targets) {
+				counts[target]++;
+			}
+			this.fanIns = counts;
+		}
+		int id = this.symbols.lookup(name);
+		return id >= 0 && id < this.fanIns.length ? this.fanIns[id] : 0;
+	}
+
+}
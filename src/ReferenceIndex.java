@@ -0,0 +1,309 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import java.io.*;
+
+/**
+Inverted index of names referenced by grammar rules.  For each name
+we keep the names of the rules referring to it, in the order those
+rules were encountered while walking the parse tree.
+
+Lexer rule references, parser rule references, and the targets of
+<code>->channel()</code>, <code>->type()</code>, and
+<code>->mode()</code>/<code>->pushMode()</code> commands are
+kept separately, as each of the searches in AntlrLint is only
+interested in one of them.  So are references from parser rules to other
+parser rules, and the mode each lexer rule is in, which the reachability
+searches turn into a ReferenceGraph.
+
+Names are held as ids from a SymbolTable, and the rules referring to 
+each name as an array of those ids.
+*/
+public class ReferenceIndex {
+	/**
+	The mode of lexer rules not following a <code>modeSpec</code>.
+	*/
+	public static final String DEFAULT_MODE = "DEFAULT_MODE";
+
+	private SymbolTable symbols = null;
+	private References lexerRuleReferences = new References();
+	private References parserRuleReferences = new References();
+	private References channelReferences = new References();
+	private References typeReferences = new References();
+	private References modeReferences = new References();
+	private References ruleReferences = new References();
+	private References lexerRuleModes = new References();
+
+	public ReferenceIndex(SymbolTable symbols) {
+		super();
+		this.symbols = symbols;
+	}
+
+	public void addLexerRuleReference(String name, String ruleName) {
+		this.add(this.lexerRuleReferences, name, ruleName);
+	}
+
+	public void addParserRuleReference(String name, String ruleName) {
+		this.add(this.parserRuleReferences, name, ruleName);
+	}
+
+	public void addChannelReference(String name, String ruleName) {
+		this.add(this.channelReferences, name, ruleName);
+	}
+
+	public void addTypeReference(String name, String ruleName) {
+		this.add(this.typeReferences, name, ruleName);
+	}
+
+	public void addModeReference(String name, String ruleName) {
+		this.add(this.modeReferences, name, ruleName);
+	}
+
+	/**
+	Record that the parser rule ruleName refers to the parser rule name.
+	*/
+	public void addRuleReference(String name, String ruleName) {
+		this.add(this.ruleReferences, name, ruleName);
+	}
+
+	/**
+	Record that the lexer rule ruleName is in the mode modeName.
+	*/
+	public void addLexerRuleMode(String modeName, String ruleName) {
+		this.add(this.lexerRuleModes, modeName, ruleName);
+	}
+
+	/**
+	Return the name of the first lexer rule referring to the indicated name,
+	or null if there is no such rule.
+	*/
+	public String firstLexerRuleReferencing(String name) {
+		return this.first(this.lexerRuleReferences, name);
+	}
+
+	public String firstParserRuleReferencing(String name) {
+		return this.first(this.parserRuleReferences, name);
+	}
+
+	public String firstRuleReferencingChannel(String name) {
+		return this.first(this.channelReferences, name);
+	}
+
+	public String firstRuleReferencingType(String name) {
+		return this.first(this.typeReferences, name);
+	}
+
+	public String firstRuleReferencingMode(String name) {
+		return this.first(this.modeReferences, name);
+	}
+
+	/**
+	Return the graph from each parser rule to the parser rules it refers to.
+	*/
+	public ReferenceGraph parserRuleGraph() {
+		return this.graph(this.ruleReferences, null);
+	}
+
+	/**
+	Return the graph from each lexer rule to the lexer rules it refers to.
+	*/
+	public ReferenceGraph lexerRuleGraph() {
+		return this.graph(this.lexerRuleReferences, null);
+	}
+
+	/**
+	Return the graph from each mode to the modes entered by 
+	<code>->mode()</code> or <code>->pushMode()</code> commands in the
+	lexer rules in that mode.
+	*/
+	public ReferenceGraph modeGraph() {
+		int[] modeOf = new int[this.symbols.size()];
+		Arrays.fill(modeOf, -1);
+		for (int mode = 0; mode < this.lexerRuleModes.rules.length; mode++) {
+			for (int i = 0; i < this.lexerRuleModes.counts[mode]; i++) {
+				modeOf[this.lexerRuleModes.rules[mode][i]] = mode;
+			}
+		}
+		return this.graph(this.modeReferences, modeOf);
+	}
+
+	/**
+	Turn an index of the rules referring to each name around into a graph
+	from each rule, or from <code>sourceOf</code> each rule if it is not null,
+	to the names it refers to, in compressed sparse row form.
+	*/
+	private ReferenceGraph graph(References references, int[] sourceOf) {
+		int size = this.symbols.size();
+		int[] offsets = new int[size + 1];
+		for (int name = 0; name < references.rules.length; name++) {
+			for (int i = 0; i < references.counts[name]; i++) {
+				int source = sourceOf == null ? references.rules[name][i] : sourceOf[references.rules[name][i]];
+				if (source >= 0) {
+					offsets[source + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] targets = new int[offsets[size]];
+		int[] next = Arrays.copyOf(offsets, size);
+		for (int name = 0; name < references.rules.length; name++) {
+			for (int i = 0; i < references.counts[name]; i++) {
+				int source = sourceOf == null ? references.rules[name][i] : sourceOf[references.rules[name][i]];
+				if (source >= 0) {
+					targets[next[source]++] = name;
+				}
+			}
+		}
+		return new ReferenceGraph(this.symbols, offsets, targets);
+	}
+
+	/**
+	Append the references recorded in another index to those in this one.  Indexes
+	must be merged in the order their grammar files would have been walked so the
+	first rule found for a name is the same as if a single index had been built.
+	*/
+	public void merge(ReferenceIndex other) {
+		int[] ids = new int[other.symbols.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = this.symbols.intern(other.symbols.name(i));
+		}
+		this.lexerRuleReferences.merge(other.lexerRuleReferences, ids);
+		this.parserRuleReferences.merge(other.parserRuleReferences, ids);
+		this.channelReferences.merge(other.channelReferences, ids);
+		this.typeReferences.merge(other.typeReferences, ids);
+		this.modeReferences.merge(other.modeReferences, ids);
+		this.ruleReferences.merge(other.ruleReferences, ids);
+		this.lexerRuleModes.merge(other.lexerRuleModes, ids);
+	}
+
+	/**
+	Write each reference as a line of kind, name, and rule name, in the order 
+	they were recorded for each name.
+	*/
+	public void writeFacts(PrintWriter out) {
+		this.writeFacts(out, "lexerRuleReference", this.lexerRuleReferences);
+		this.writeFacts(out, "parserRuleReference", this.parserRuleReferences);
+		this.writeFacts(out, "channelReference", this.channelReferences);
+		this.writeFacts(out, "typeReference", this.typeReferences);
+		this.writeFacts(out, "modeReference", this.modeReferences);
+		this.writeFacts(out, "ruleReference", this.ruleReferences);
+		this.writeFacts(out, "lexerRuleMode", this.lexerRuleModes);
+	}
+
+	private void writeFacts(PrintWriter out, String kind, References references) {
+		for (int name = 0; name < references.rules.length; name++) {
+			for (int i = 0; i < references.counts[name]; i++) {
+				out.println(kind + "\t" + this.symbols.name(name) + "\t" + this.symbols.name(references.rules[name][i]));
+			}
+		}
+	}
+
+	/**
+	Record a reference written by <code>writeFacts</code>.  Returns false if the 
+	kind of reference is not recognized.
+	*/
+	public Boolean readFact(String kind, String name, String ruleName) {
+		if (kind.equals("lexerRuleReference")) {
+			this.addLexerRuleReference(name, ruleName);
+		} else if (kind.equals("parserRuleReference")) {
+			this.addParserRuleReference(name, ruleName);
+		} else if (kind.equals("channelReference")) {
+			this.addChannelReference(name, ruleName);
+		} else if (kind.equals("typeReference")) {
+			this.addTypeReference(name, ruleName);
+		} else if (kind.equals("modeReference")) {
+			this.addModeReference(name, ruleName);
+		} else if (kind.equals("ruleReference")) {
+			this.addRuleReference(name, ruleName);
+		} else if (kind.equals("lexerRuleMode")) {
+			this.addLexerRuleMode(name, ruleName);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private void add(References references, String name, String ruleName) {
+		references.add(this.symbols.intern(name), this.symbols.intern(ruleName));
+	}
+
+	private String first(References references, String name) {
+		int rule = references.first(this.symbols.lookup(name));
+		if (rule < 0) {
+			return null;
+		}
+		return this.symbols.name(rule);
+	}
+
+	/**
+	For each name, by its id, the ids of the rules referring to it.
+	*/
+	private static class References {
+		private int[][] rules = new int[0][];
+		private int[] counts = new int[0];
+
+		/**
+		A rule referring to the same name more than once is only recorded once.
+		All references from a given rule are recorded while that rule is being
+		visited, so checking the most recently added entry is sufficient.
+		*/
+		private void add(int name, int rule) {
+			if (name >= this.rules.length) {
+				int length = Math.max(name + 1, this.rules.length * 2);
+				this.rules = Arrays.copyOf(this.rules, length);
+				this.counts = Arrays.copyOf(this.counts, length);
+			}
+			int count = this.counts[name];
+			int[] r = this.rules[name];
+			if (r == null) {
+				r = new int[2];
+				this.rules[name] = r;
+			} else if (r[count - 1] == rule) {
+				return;
+			} else if (count == r.length) {
+				r = Arrays.copyOf(r, count * 2);
+				this.rules[name] = r;
+			}
+			r[count] = rule;
+			this.counts[name] = count + 1;
+		}
+
+		/**
+		Return the id of the first rule referring to the indicated name, or -1.
+		*/
+		private int first(int name) {
+			if (name < 0 || name >= this.counts.length || this.counts[name] == 0) {
+				return -1;
+			}
+			return this.rules[name][0];
+		}
+
+		/**
+		Append the references from another index, whose ids are translated to
+		this index's ids by <code>ids</code>.
+		*/
+		private void merge(References other, int[] ids) {
+			for (int name = 0; name < other.rules.length; name++) {
+				for (int i = 0; i < other.counts[name]; i++) {
+					this.add(ids[name], ids[other.rules[name][i]]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+
+/**
+Writes findings as a SARIF 2.1.0 log with a single run, the header written
+by <code>begin()</code>, each finding as a result as it is decided, and the
+closing brackets by <code>end()</code>.
+*/
+public class SarifFindingWriter extends FindingWriter {
+	private static final String[] RULE_CATEGORIES = {
+		Finding.TOKEN, Finding.CHANNEL, Finding.TOKENS_SPEC_TOKEN, Finding.MODE_SPEC
+		, Finding.UNREACHABLE_PARSER_RULE, Finding.UNREACHABLE_FRAGMENT, Finding.UNREACHABLE_MODE_SPEC
+		, Finding.DUPLICATE_LEXER_RULE, Finding.DUPLICATE_LEXER_RULE_ELSEWHERE, Finding.SHADOWED_TOKEN
+		, Finding.MANY_KEYWORDS, Finding.KEYWORD_ALTERNATION, Finding.NON_GREEDY_LOOP, Finding.OVERLAPPING_SETS};
+
+	private Boolean first = true;
+
+	public SarifFindingWriter(PrintStream out) {
+		super(out);
+	}
+
+	@Override public void begin() {
+		this.out.println("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[{");
+		this.out.print("\"tool\":{\"driver\":{\"name\":\"AntlrLint\",\"rules\":[");
+		for (int i = 0; i < RULE_CATEGORIES.length; i++) {
+			Finding f = new Finding(RULE_CATEGORIES[i], "");
+			if (i > 0) {
+				this.out.print(",");
+			}
+			this.out.print("{\"id\":" + quote(f.getRuleId())
+				+ ",\"shortDescription\":{\"text\":" + quote(f.getDescription()) + "}}");
+		}
+		this.out.println("]}},");
+		this.out.println("\"results\":[");
+		this.out.flush();
+	}
+
+	@Override public synchronized void write(Finding finding, Location location) {
+		StringBuilder sb = new StringBuilder();
+		if (!this.first) {
+			sb.append(",\n");
+		}
+		this.first = false;
+		sb.append("{\"ruleId\":").append(quote(finding.getRuleId()));
+		sb.append(",\"level\":\"warning\"");
+		sb.append(",\"message\":{\"text\":").append(quote(finding.getMessage())).append('}');
+		if (location != null) {
+			sb.append(",\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+			sb.append(quote(uriOf(location.getFileName())));
+			sb.append("},\"region\":{\"startLine\":").append(location.getLine());
+			sb.append(",\"startColumn\":").append(location.getColumn());
+			sb.append("}}}]");
+		}
+		sb.append('}');
+		this.out.print(sb);
+		this.out.flush();
+	}
+
+	@Override public void end() {
+		this.out.println();
+		this.out.println("]}]}");
+		this.out.flush();
+	}
+
+	/**
+	A relative URI reference for a file name, which is how SARIF consumers
+	expect to find files relative to where the lint was run.
+	*/
+	private static String uriOf(String fileName) {
+		String s = fileName.replace('\\', '/');
+		if (s.startsWith("./")) {
+			s = s.substring(2);
+		}
+		return s.replace("%", "%25").replace(" ", "%20");
+	}
+
+}
@@ -0,0 +1,289 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import org.antlr.v4.runtime.*;
+
+/**
+Collect the same things GrammarListener does, into a GrammarListener, but
+as a parse listener attached to ANTLRv4Parser with parse tree building
+turned off.
+
+Without a parse tree a context knows its parent and the tokens matched
+directly within it, but not the contexts of the rules it invoked.  So
+instead of navigating down from a <code>lexerRuleSpec</code> or
+<code>parserRuleSpec</code> as GrammarListener does, each thing of interest
+is recorded as its rule completes, checking its ancestors to see that it
+is in the same place GrammarListener would have looked for it.  Text is
+taken from the token stream.
+*/
+public class StreamingGrammarListener extends ANTLRv4ParserBaseListener {
+	private GrammarListener facts = null;
+	private BufferedTokenStream tokens = null;
+	private String lexerRuleName = null;
+	private String parserRuleName = null;
+	private Boolean skipIt = false;
+	private Boolean hasActionBlock = false;
+	private String typeName = null;
+	private String lexerCommandName = null;
+	private String lexerCommandExpr = null;
+	private String modeName = ReferenceIndex.DEFAULT_MODE;
+
+	public StreamingGrammarListener(GrammarListener facts, BufferedTokenStream tokens) {
+		super();
+		this.facts = facts;
+		this.tokens = tokens;
+	}
+
+	/**
+	The name of a lexer rule has been matched by the time its block is entered.
+	Collecting it then, before anything it refers to, collects everything in the
+	same order as GrammarListener.
+	*/
+	@Override public void enterLexerRuleBlock(ANTLRv4Parser.LexerRuleBlockContext ctx) {
+		ANTLRv4Parser.LexerRuleSpecContext lrsCtx = (ANTLRv4Parser.LexerRuleSpecContext)ctx.getParent();
+		this.lexerRuleName = lrsCtx.TOKEN_REF().getSymbol().getText();
+		this.facts.addLexerRuleName(this.lexerRuleName);
+		if (lrsCtx.FRAGMENT() != null) {
+			this.facts.addLexerFragmentName(this.lexerRuleName, lrsCtx.TOKEN_REF().getSymbol());
+		}
+		this.facts.getReferenceIndex().addLexerRuleMode(this.modeName, this.lexerRuleName);
+		this.skipIt = false;
+		this.hasActionBlock = false;
+		this.typeName = null;
+	}
+
+	/**
+	The whole body of a lexer rule has been matched by the time its block is
+	exited, so its canonical form and cost can be computed from the token stream.
+	*/
+	@Override public void exitLexerRuleBlock(ANTLRv4Parser.LexerRuleBlockContext ctx) {
+		if (!this.facts.collectsLexerRuleShapes() && !this.facts.collectsLexerRuleCosts()) {
+			return;
+		}
+		ANTLRv4Parser.LexerRuleSpecContext lrsCtx = (ANTLRv4Parser.LexerRuleSpecContext)ctx.getParent();
+		ArrayList<Token> body = new ArrayList<>();
+		if (ctx.getStart() != null && ctx.getStop() != null) {
+			for (int i = ctx.getStart().getTokenIndex(); i <= ctx.getStop().getTokenIndex(); i++) {
+				Token t = this.tokens.get(i);
+				if (t.getChannel() == Token.DEFAULT_CHANNEL) {
+					body.add(t);
+				}
+			}
+		}
+		if (this.facts.collectsLexerRuleShapes()) {
+			this.facts.addLexerRuleShape(this.lexerRuleName, this.modeName
+				, LexerRuleShape.of(body, lrsCtx.FRAGMENT() != null), lrsCtx.TOKEN_REF().getSymbol());
+		}
+		if (this.facts.collectsLexerRuleCosts()) {
+			this.facts.addLexerRuleCost(this.lexerRuleName, this.modeName
+				, LexerRuleCost.of(body), lrsCtx.TOKEN_REF().getSymbol());
+		}
+	}
+
+	/**
+	As in GrammarListener, the Lexer Token is of interest if the rule has no
+	action blocks and no lexer commands other than <code>->type()</code>,
+	in which case the type is collected instead of the rule name.
+	*/
+	@Override public void exitLexerRuleSpec(ANTLRv4Parser.LexerRuleSpecContext ctx) {
+		if (this.lexerRuleName == null) {
+			return;
+		}
+		if (!this.skipIt && !this.hasActionBlock) {
+			if (this.typeName != null) {
+				this.facts.addLexerToken(this.typeName, ctx.TOKEN_REF().getSymbol());
+			} else {
+				this.facts.addLexerToken(this.lexerRuleName, ctx.TOKEN_REF().getSymbol());
+			}
+		}
+		this.lexerRuleName = null;
+	}
+
+	@Override public void enterActionBlock(ANTLRv4Parser.ActionBlockContext ctx) {
+		if (this.lexerRuleName != null && ctx.getParent() instanceof ANTLRv4Parser.LexerElementContext) {
+			this.hasActionBlock = true;
+		}
+	}
+
+	@Override public void enterLexerCommand(ANTLRv4Parser.LexerCommandContext ctx) {
+		this.lexerCommandName = null;
+		this.lexerCommandExpr = null;
+	}
+
+	@Override public void exitLexerCommandName(ANTLRv4Parser.LexerCommandNameContext ctx) {
+		this.lexerCommandName = this.textOf(ctx);
+	}
+
+	@Override public void exitLexerCommandExpr(ANTLRv4Parser.LexerCommandExprContext ctx) {
+		this.lexerCommandExpr = this.textOf(ctx);
+	}
+
+	/**
+	Only commands in the outermost alternatives of a lexer rule are considered,
+	as in GrammarListener.
+	*/
+	@Override public void exitLexerCommand(ANTLRv4Parser.LexerCommandContext ctx) {
+		if (this.lexerRuleName == null || this.lexerCommandName == null) {
+			return;
+		}
+		ParserRuleContext lalCtx = ctx.getParent().getParent().getParent();
+		if (!(lalCtx.getParent() instanceof ANTLRv4Parser.LexerRuleBlockContext)) {
+			return;
+		}
+
+		String cmd = this.lexerCommandName;
+		String expr = this.lexerCommandExpr;
+		if (cmd.equals("skip") || cmd.equals("channel") || cmd.equals("pushMode")
+				|| cmd.equals("popMode") || cmd.equals("mode")) {
+			this.skipIt = true;
+		} else if (cmd.equals("type") && expr != null && !this.skipIt) {
+			this.typeName = expr;
+		}
+
+		if (expr == null) {
+			return;
+		}
+		if (cmd.equals("channel")) {
+			this.facts.getReferenceIndex().addChannelReference(expr, this.lexerRuleName);
+		} else if (cmd.equals("type")) {
+			this.facts.getReferenceIndex().addTypeReference(expr, this.lexerRuleName);
+		} else if (cmd.equals("mode") || cmd.equals("pushMode") || cmd.equals("popMode")) {
+			this.facts.getReferenceIndex().addModeReference(expr, this.lexerRuleName);
+		}
+	}
+
+	/**
+	The name of a parser rule has been matched by the time its block is entered.
+	*/
+	@Override public void enterRuleBlock(ANTLRv4Parser.RuleBlockContext ctx) {
+		ANTLRv4Parser.ParserRuleSpecContext prsCtx = (ANTLRv4Parser.ParserRuleSpecContext)ctx.getParent();
+		this.parserRuleName = prsCtx.RULE_REF().getSymbol().getText();
+		this.facts.addParserRuleName(this.parserRuleName, prsCtx.RULE_REF().getSymbol());
+	}
+
+	@Override public void exitParserRuleSpec(ANTLRv4Parser.ParserRuleSpecContext ctx) {
+		this.parserRuleName = null;
+	}
+
+	@Override public void exitRuleref(ANTLRv4Parser.RulerefContext ctx) {
+		if (this.parserRuleName != null) {
+			this.facts.getReferenceIndex().addRuleReference(ctx.RULE_REF().getText(), this.parserRuleName);
+		}
+	}
+
+	/**
+	A <code>terminal</code> in a <code>lexerAtom</code> is a reference from
+	the lexer rule.  A <code>TOKEN_REF</code> in a parser rule is a reference
+	if it is in a place GrammarListener would look for it.
+	*/
+	@Override public void exitTerminal(ANTLRv4Parser.TerminalContext ctx) {
+		if (this.lexerRuleName != null) {
+			if (ctx.getParent() instanceof ANTLRv4Parser.LexerAtomContext) {
+				this.facts.getReferenceIndex().addLexerRuleReference(this.textOf(ctx), this.lexerRuleName);
+			}
+		} else if (this.parserRuleName != null && ctx.TOKEN_REF() != null) {
+			if (this.isIndexedParserTerminal(ctx)) {
+				this.facts.getReferenceIndex().addParserRuleReference(ctx.TOKEN_REF().getText(), this.parserRuleName);
+			}
+		}
+	}
+
+	@Override public void exitOption(ANTLRv4Parser.OptionContext ctx) {
+		String text = this.textOf(ctx);
+		if (text.startsWith("tokenVocab=")) {
+			this.facts.addTokenVocab(text.substring("tokenVocab=".length()));
+		}
+	}
+
+	/**
+	Collect channel names, tokensSpec tokens, imported grammar names, and mode
+	names.  The lexer rules following a mode name are in that mode.
+	*/
+	@Override public void exitIdentifier(ANTLRv4Parser.IdentifierContext ctx) {
+		ParserRuleContext parent = ctx.getParent();
+		if (parent instanceof ANTLRv4Parser.IdListContext) {
+			if (parent.getParent() instanceof ANTLRv4Parser.ChannelsSpecContext) {
+				this.facts.addLexerChannel(this.textOf(ctx), ctx.getStart());
+			} else if (parent.getParent() instanceof ANTLRv4Parser.TokensSpecContext) {
+				this.facts.addTokensSpecToken(this.textOf(ctx), ctx.getStart());
+			}
+		} else if (parent instanceof ANTLRv4Parser.DelegateGrammarContext) {
+			this.facts.addDelegateGrammar(this.textOf(ctx));
+		} else if (parent instanceof ANTLRv4Parser.ModeSpecContext) {
+			this.modeName = this.textOf(ctx);
+			this.facts.addModeSpec(this.modeName, ctx.getStart());
+		}
+	}
+
+	/**
+	GrammarListener looks for a <code>terminal</code> in the <code>atom</code> of
+	each <code>element</code> of the <code>alternative</code> of a
+	<code>labeledAlt</code>, recursing into the <code>alternative</code>s of
+	the <code>block</code> of any <code>ebnf</code> <code>element</code>.
+	Check the ancestors of this <code>terminal</code> follow that path.
+	*/
+	private Boolean isIndexedParserTerminal(ANTLRv4Parser.TerminalContext ctx) {
+		ParserRuleContext p = ctx.getParent();
+		if (!(p instanceof ANTLRv4Parser.AtomContext)) {
+			return false;
+		}
+		p = p.getParent();
+		while (p instanceof ANTLRv4Parser.ElementContext) {
+			p = p.getParent();
+			if (!(p instanceof ANTLRv4Parser.AlternativeContext)) {
+				return false;
+			}
+			p = p.getParent();
+			if (p instanceof ANTLRv4Parser.LabeledAltContext) {
+				return true;
+			}
+			if (!(p instanceof ANTLRv4Parser.AltListContext)) {
+				return false;
+			}
+			p = p.getParent();
+			if (!(p instanceof ANTLRv4Parser.BlockContext)) {
+				return false;
+			}
+			p = p.getParent();
+			if (!(p instanceof ANTLRv4Parser.EbnfContext)) {
+				return false;
+			}
+			p = p.getParent();
+		}
+		return false;
+	}
+
+	/**
+	The text of the tokens matched by a completed rule, as
+	<code>getText()</code> would return it had the parse tree been built.
+	*/
+	private String textOf(ParserRuleContext ctx) {
+		Token start = ctx.getStart();
+		Token stop = ctx.getStop();
+		if (start == null || stop == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = start.getTokenIndex(); i <= stop.getTokenIndex(); i++) {
+			Token t = this.tokens.get(i);
+			if (t.getChannel() == Token.DEFAULT_CHANNEL) {
+				sb.append(t.getText());
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,74 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+
+/**
+Assigns each distinct name (token, rule, channel, mode) a dense integer id,
+starting at zero, and keeps a single copy of the name.  The same name
+appears many times in a grammar; keeping one copy and referring to it by id
+keeps what is collected from a grammar small.
+
+Not thread safe, each GrammarListener has its own.
+*/
+public class SymbolTable {
+	private HashMap<String, Integer> ids = new HashMap<>();
+	private ArrayList<String> names = new ArrayList<>();
+
+	public SymbolTable() {
+		super();
+	}
+
+	/**
+	Return the id of the indicated name, assigning the next id if the name
+	has not been seen before.
+	*/
+	public int intern(String name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			id = this.names.size();
+			this.ids.put(name, id);
+			this.names.add(name);
+		}
+		return id;
+	}
+
+	/**
+	Return the id of the indicated name, or -1 if it has not been seen.
+	*/
+	public int lookup(String name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	Return the single copy kept of the indicated name.
+	*/
+	public String canonical(String name) {
+		return this.names.get(this.intern(name));
+	}
+
+	public String name(int id) {
+		return this.names.get(id);
+	}
+
+	public int size() {
+		return this.names.size();
+	}
+
+}
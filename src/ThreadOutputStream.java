@@ -0,0 +1,63 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+
+/**
+An OutputStream writing to the stream the current thread has set, or to
+the stream it stands in for if the thread has set none.  Installed as 
+<code>System.out</code> and <code>System.err</code>, it lets grammar sets 
+linted at the same time on different threads each have their output
+collected separately, to be printed in order once complete.
+*/
+public class ThreadOutputStream extends OutputStream {
+	private OutputStream fallback = null;
+	private ThreadLocal<OutputStream> streams = new ThreadLocal<>();
+
+	public ThreadOutputStream(OutputStream fallback) {
+		super();
+		this.fallback = fallback;
+	}
+
+	/**
+	Send what the current thread writes to the indicated stream, or to the
+	fallback stream if it is null.
+	*/
+	public void setStream(OutputStream stream) {
+		if (stream == null) {
+			this.streams.remove();
+		} else {
+			this.streams.set(stream);
+		}
+	}
+
+	@Override public void write(int b) throws IOException {
+		this.stream().write(b);
+	}
+
+	@Override public void write(byte[] b, int off, int len) throws IOException {
+		this.stream().write(b, off, len);
+	}
+
+	@Override public void flush() throws IOException {
+		this.stream().flush();
+	}
+
+	private OutputStream stream() {
+		OutputStream stream = this.streams.get();
+		return stream == null ? this.fallback : stream;
+	}
+
+}
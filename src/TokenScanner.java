@@ -0,0 +1,431 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.*;
+import org.antlr.v4.runtime.*;
+
+/**
+Collect the same things GrammarListener does, into a GrammarListener, from
+the tokens ANTLRv4Lexer produces without running ANTLRv4Parser at all.
+
+LexerAdaptor already does most of the work of telling one construct from
+another: <code>TOKEN_REF</code> and <code>RULE_REF</code> are distinguished,
+and the contents of action blocks, arguments, and lexer character sets are
+each set apart.  What remains is a small state machine over the tokens on
+the default channel.
+
+At the top level a <code>TOKEN_REF</code> begins a lexer rule and a
+<code>RULE_REF</code> begins a parser rule, each ending at the next
+<code>SEMI</code>.  Within a rule, parentheses are counted so that lexer
+commands in the outermost alternatives, labeled blocks, and inverted sets
+can be recognized, these being the distinctions GrammarListener makes by
+navigating the parse tree.
+
+No syntax errors are reported.  A grammar file which does not parse may
+yield different results than it would with the parser's error recovery.
+*/
+public class TokenScanner {
+	private GrammarListener facts = null;
+	private ArrayList<Token> tokens = new ArrayList<>();
+	private String modeName = ReferenceIndex.DEFAULT_MODE;
+
+	public TokenScanner(GrammarListener facts, BufferedTokenStream tokenStream) {
+		super();
+		this.facts = facts;
+		tokenStream.fill();
+		this.significantTokens(tokenStream.getTokens());
+	}
+
+	/**
+	Keep the tokens on the default channel, except that each action block and
+	argument is kept as only its <code>BEGIN_ACTION</code> or
+	<code>BEGIN_ARGUMENT</code> token and <code>options{}</code> are dropped
+	entirely, none of these containing anything else GrammarListener 
+	collects once any <code>tokenVocab</code> option has been collected.
+	*/
+	private void significantTokens(List<Token> allTokens) {
+		int i = 0;
+		while (i < allTokens.size()) {
+			Token t = allTokens.get(i);
+			i++;
+			if (t.getChannel() != Token.DEFAULT_CHANNEL || t.getType() == Token.EOF) {
+				continue;
+			}
+			switch(t.getType()) {
+				case ANTLRv4Lexer.BEGIN_ACTION:
+					this.tokens.add(t);
+					i = skipPast(allTokens, i, ANTLRv4Lexer.END_ACTION);
+					break;
+				case ANTLRv4Lexer.BEGIN_ARGUMENT:
+					this.tokens.add(t);
+					i = skipPast(allTokens, i, ANTLRv4Lexer.END_ARGUMENT);
+					break;
+				case ANTLRv4Lexer.OPTIONS:
+					while (i < allTokens.size() && allTokens.get(i).getType() != ANTLRv4Lexer.RBRACE) {
+						if (allTokens.get(i).getType() == ANTLRv4Lexer.BEGIN_ACTION) {
+							i = skipPast(allTokens, i + 1, ANTLRv4Lexer.END_ACTION);
+						} else if (allTokens.get(i).getText().equals("tokenVocab")) {
+							i = this.tokenVocab(allTokens, i + 1);
+						} else {
+							i++;
+						}
+					}
+					i++;
+					break;
+				default:
+					this.tokens.add(t);
+					break;
+			}
+		}
+	}
+
+	/**
+	Collect the value of a <code>tokenVocab</code> option, whose name was just
+	before i, returning the index of the <code>SEMI</code> or 
+	<code>RBRACE</code> ending it.
+	*/
+	private int tokenVocab(List<Token> allTokens, int i) {
+		StringBuilder sb = new StringBuilder();
+		Boolean assigned = false;
+		while (i < allTokens.size()) {
+			Token t = allTokens.get(i);
+			if (t.getType() == ANTLRv4Lexer.SEMI || t.getType() == ANTLRv4Lexer.RBRACE || t.getType() == Token.EOF) {
+				break;
+			}
+			if (t.getChannel() == Token.DEFAULT_CHANNEL) {
+				if (assigned) {
+					sb.append(t.getText());
+				} else if (t.getType() == ANTLRv4Lexer.ASSIGN) {
+					assigned = true;
+				}
+			}
+			i++;
+		}
+		if (assigned) {
+			this.facts.addTokenVocab(sb.toString());
+		}
+		return i;
+	}
+
+	/**
+	Return the index following the next token of the indicated type, or of an
+	unterminated action or argument, starting at i.
+	*/
+	private static int skipPast(List<Token> allTokens, int i, int type) {
+		while (i < allTokens.size()) {
+			int t = allTokens.get(i).getType();
+			i++;
+			if (t == type || t == ANTLRv4Lexer.UNTERMINATED_ACTION
+					|| t == ANTLRv4Lexer.UNTERMINATED_ARGUMENT || t == Token.EOF) {
+				break;
+			}
+		}
+		return i;
+	}
+
+	/**
+	Scan the tokens, collecting into the GrammarListener provided.
+	*/
+	public void scan() {
+		int i = 0;
+		while (i < this.tokens.size()) {
+			switch(this.type(i)) {
+				case ANTLRv4Lexer.GRAMMAR:
+					i = this.indexOf(ANTLRv4Lexer.SEMI, i) + 1;
+					break;
+				case ANTLRv4Lexer.IMPORT:
+					for (i++; i < this.tokens.size() && this.type(i) != ANTLRv4Lexer.SEMI; i++) {
+						if (this.isIdentifier(i)) {
+							this.facts.addDelegateGrammar(this.text(i));
+						}
+					}
+					break;
+				case ANTLRv4Lexer.TOKENS:
+					for (i++; i < this.tokens.size() && this.type(i) != ANTLRv4Lexer.RBRACE; i++) {
+						if (this.isIdentifier(i)) {
+							this.facts.addTokensSpecToken(this.text(i), this.tokens.get(i));
+						}
+					}
+					break;
+				case ANTLRv4Lexer.CHANNELS:
+					for (i++; i < this.tokens.size() && this.type(i) != ANTLRv4Lexer.RBRACE; i++) {
+						if (this.isIdentifier(i)) {
+							this.facts.addLexerChannel(this.text(i), this.tokens.get(i));
+						}
+					}
+					break;
+				case ANTLRv4Lexer.MODE:
+					if (this.isIdentifier(i + 1)) {
+						this.modeName = this.text(i + 1);
+						this.facts.addModeSpec(this.modeName, this.tokens.get(i + 1));
+					}
+					i = this.indexOf(ANTLRv4Lexer.SEMI, i) + 1;
+					break;
+				case ANTLRv4Lexer.AT:
+				case ANTLRv4Lexer.CATCH:
+				case ANTLRv4Lexer.FINALLY:
+					i = this.indexOf(ANTLRv4Lexer.BEGIN_ACTION, i) + 1;
+					break;
+				case ANTLRv4Lexer.TOKEN_REF:
+					i = this.scanLexerRule(i);
+					break;
+				case ANTLRv4Lexer.RULE_REF:
+					i = this.scanParserRule(i);
+					break;
+				default:
+					i++;
+					break;
+			}
+		}
+	}
+
+	/**
+	Scan the lexer rule whose name is at i, returning the index following the
+	<code>SEMI</code> ending it.
+	*/
+	private int scanLexerRule(int i) {
+		String lexerRuleName = this.text(i);
+		Token lexerRuleToken = this.tokens.get(i);
+		Boolean skipIt = false;
+		Boolean hasActionBlock = false;
+		String typeName = null;
+		int depth = 0;
+		int invertedDepth = -1;
+
+		this.facts.addLexerRuleName(lexerRuleName);
+		if (this.type(i - 1) == ANTLRv4Lexer.FRAGMENT) {
+			this.facts.addLexerFragmentName(lexerRuleName, lexerRuleToken);
+		}
+		this.facts.getReferenceIndex().addLexerRuleMode(this.modeName, lexerRuleName);
+		int end = this.indexOf(ANTLRv4Lexer.SEMI, i);
+		int j = this.indexOf(ANTLRv4Lexer.COLON, i) + 1;
+		if (this.facts.collectsLexerRuleShapes()) {
+			this.facts.addLexerRuleShape(lexerRuleName, this.modeName
+				, LexerRuleShape.of(this.tokens.subList(Math.min(j, end), end), this.type(i - 1) == ANTLRv4Lexer.FRAGMENT)
+				, lexerRuleToken);
+		}
+		if (this.facts.collectsLexerRuleCosts()) {
+			this.facts.addLexerRuleCost(lexerRuleName, this.modeName
+				, LexerRuleCost.of(this.tokens.subList(Math.min(j, end), end)), lexerRuleToken);
+		}
+		while (j < end) {
+			switch(this.type(j)) {
+				case ANTLRv4Lexer.LPAREN:
+					if (this.type(j - 1) == ANTLRv4Lexer.NOT && invertedDepth < 0) {
+						invertedDepth = depth;
+					}
+					depth++;
+					j++;
+					break;
+				case ANTLRv4Lexer.RPAREN:
+					depth--;
+					if (depth == invertedDepth) {
+						invertedDepth = -1;
+					}
+					j++;
+					break;
+				case ANTLRv4Lexer.BEGIN_ACTION:
+					hasActionBlock = true;
+					j++;
+					break;
+				case ANTLRv4Lexer.LT:
+					j = this.indexOf(ANTLRv4Lexer.GT, j) + 1;
+					break;
+				case ANTLRv4Lexer.TOKEN_REF:
+				case ANTLRv4Lexer.STRING_LITERAL:
+					if (invertedDepth < 0
+							&& this.type(j - 1) != ANTLRv4Lexer.NOT
+							&& this.type(j - 1) != ANTLRv4Lexer.RANGE
+							&& this.type(j + 1) != ANTLRv4Lexer.RANGE) {
+						this.facts.getReferenceIndex().addLexerRuleReference(this.terminalText(j), lexerRuleName);
+					}
+					j++;
+					break;
+				case ANTLRv4Lexer.RARROW:
+					/*
+					Only commands in the outermost alternatives are of interest, as in
+					GrammarListener.
+					*/
+					Boolean outermost = depth == 0;
+					j++;
+					while (j < end) {
+						String cmd = this.text(j);
+						String expr = null;
+						j++;
+						if (this.type(j) == ANTLRv4Lexer.LPAREN) {
+							int rparen = this.indexOf(ANTLRv4Lexer.RPAREN, j);
+							if (rparen > j + 1) {
+								expr = this.text(j + 1, rparen - 1);
+							}
+							j = rparen + 1;
+						}
+						if (outermost) {
+							if (cmd.equals("skip") || cmd.equals("channel") || cmd.equals("pushMode")
+									|| cmd.equals("popMode") || cmd.equals("mode")) {
+								skipIt = true;
+							} else if (cmd.equals("type") && expr != null && !skipIt) {
+								typeName = expr;
+							}
+							if (expr != null) {
+								if (cmd.equals("channel")) {
+									this.facts.getReferenceIndex().addChannelReference(expr, lexerRuleName);
+								} else if (cmd.equals("type")) {
+									this.facts.getReferenceIndex().addTypeReference(expr, lexerRuleName);
+								} else if (cmd.equals("mode") || cmd.equals("pushMode") || cmd.equals("popMode")) {
+									this.facts.getReferenceIndex().addModeReference(expr, lexerRuleName);
+								}
+							}
+						}
+						if (j < end && this.type(j) == ANTLRv4Lexer.COMMA) {
+							j++;
+						} else {
+							break;
+						}
+					}
+					break;
+				default:
+					j++;
+					break;
+			}
+		}
+
+		if (!skipIt && !hasActionBlock) {
+			if (typeName != null) {
+				this.facts.addLexerToken(typeName, lexerRuleToken);
+			} else {
+				this.facts.addLexerToken(lexerRuleName, lexerRuleToken);
+			}
+		}
+
+		return end + 1;
+	}
+
+	/**
+	Scan the parser rule whose name is at i, returning the index following the
+	<code>SEMI</code> ending it.  Any exception handlers following it are
+	skipped by <code>scan</code>.
+
+	A <code>TOKEN_REF</code> is a reference unless it is, or is within, a
+	labeled element or an inverted set, or is itself a label.  A
+	<code>RULE_REF</code> is a reference to a parser rule wherever it is,
+	unless it is itself a label.
+	*/
+	private int scanParserRule(int i) {
+		String parserRuleName = this.text(i);
+		int depth = 0;
+		int excludedDepth = -1;
+
+		this.facts.addParserRuleName(parserRuleName, this.tokens.get(i));
+		int end = this.indexOf(ANTLRv4Lexer.SEMI, i);
+		int j = this.indexOf(ANTLRv4Lexer.COLON, i) + 1;
+		while (j < end) {
+			switch(this.type(j)) {
+				case ANTLRv4Lexer.LPAREN:
+					if (excludedDepth < 0 && this.isExcludingPrefix(j - 1)) {
+						excludedDepth = depth;
+					}
+					depth++;
+					j++;
+					break;
+				case ANTLRv4Lexer.RPAREN:
+					depth--;
+					if (depth == excludedDepth) {
+						excludedDepth = -1;
+					}
+					j++;
+					break;
+				case ANTLRv4Lexer.LT:
+					j = this.indexOf(ANTLRv4Lexer.GT, j) + 1;
+					break;
+				case ANTLRv4Lexer.AT:
+				case ANTLRv4Lexer.POUND:
+					j += 2;
+					break;
+				case ANTLRv4Lexer.RULE_REF:
+					if (this.type(j + 1) != ANTLRv4Lexer.ASSIGN && this.type(j + 1) != ANTLRv4Lexer.PLUS_ASSIGN) {
+						this.facts.getReferenceIndex().addRuleReference(this.text(j), parserRuleName);
+					}
+					j++;
+					break;
+				case ANTLRv4Lexer.TOKEN_REF:
+					if (excludedDepth < 0
+							&& !this.isExcludingPrefix(j - 1)
+							&& this.type(j + 1) != ANTLRv4Lexer.ASSIGN
+							&& this.type(j + 1) != ANTLRv4Lexer.PLUS_ASSIGN) {
+						this.facts.getReferenceIndex().addParserRuleReference(this.text(j), parserRuleName);
+					}
+					j++;
+					break;
+				default:
+					j++;
+					break;
+			}
+		}
+
+		return end + 1;
+	}
+
+	private Boolean isExcludingPrefix(int i) {
+		int t = this.type(i);
+		return t == ANTLRv4Lexer.NOT || t == ANTLRv4Lexer.ASSIGN || t == ANTLRv4Lexer.PLUS_ASSIGN;
+	}
+
+	private Boolean isIdentifier(int i) {
+		int t = this.type(i);
+		return t == ANTLRv4Lexer.TOKEN_REF || t == ANTLRv4Lexer.RULE_REF;
+	}
+
+	/**
+	A lexer <code>terminal</code> includes any element options, as its
+	<code>getText()</code> would in the parse tree.
+	*/
+	private String terminalText(int i) {
+		if (this.type(i + 1) == ANTLRv4Lexer.LT) {
+			return this.text(i, this.indexOf(ANTLRv4Lexer.GT, i));
+		}
+		return this.text(i);
+	}
+
+	/**
+	Return the index of the next token of the indicated type starting at i,
+	or the number of tokens if there is none.
+	*/
+	private int indexOf(int type, int i) {
+		while (i < this.tokens.size() && this.type(i) != type) {
+			i++;
+		}
+		return i;
+	}
+
+	private int type(int i) {
+		if (i < 0 || i >= this.tokens.size()) {
+			return Token.INVALID_TYPE;
+		}
+		return this.tokens.get(i).getType();
+	}
+
+	private String text(int i) {
+		return this.tokens.get(i).getText();
+	}
+
+	private String text(int from, int to) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = from; i <= to && i < this.tokens.size(); i++) {
+			sb.append(this.text(i));
+		}
+		return sb.toString();
+	}
+
+}
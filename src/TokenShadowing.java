@@ -0,0 +1,328 @@
+/*Copyright (C) 2023 Craig Schneiderwent.  All rights reserved.*/
+
+/*
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.*;
+import java.util.*;
+import org.antlr.v4.Tool;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.*;
+import org.antlr.v4.runtime.misc.*;
+import org.antlr.v4.tool.*;
+
+/**
+Finds Lexer Tokens which are defined, and may well be referenced, but are
+never produced because an earlier lexer rule always matches the same input.
+
+The lexer grammar is loaded with the ANTLR tool in 
+<code>antlr-4.13.1-complete.jar</code>, which builds its ATN.  Each token
+whose rule matches a single fixed sequence of characters, or of character
+sets, e.g. <code>'SELECT'</code> or <code>S E L E C T</code> where each
+letter is a fragment, is probed with its own text, taking the lowest
+character of each set.  If the ATN simulator predicts a different rule for
+that text, and for every other text the token matches, that rule shadows 
+the token.  A token matching more than MAX_PROBES texts is not reported.
+
+One LexerInterpreter is used for every probe, so each probe after the
+first mostly follows DFA edges already built by earlier probes rather than
+simulating the ATN.
+*/
+public class TokenShadowing {
+	public static final int MAX_PROBES = 1024;
+
+	private Grammar grammar = null;
+	private LexerInterpreter interpreter = null;
+	private ArrayList<String> errors = new ArrayList<>();
+	private HashMap<Integer, String> ruleNamesByType = new HashMap<>();
+	private int sentinel = 0;
+
+	/**
+	Load the lexer grammar in the indicated file, or the lexer implicit in a
+	combined grammar, looking for imported grammars as an ImportResolver 
+	does, in each of the search paths in turn and then beside the grammar
+	importing them.  If it cannot be loaded, <code>getErrors()</code> says 
+	why.  A parser grammar has no lexer.
+	*/
+	public TokenShadowing(String fileName, List<String> searchPaths) {
+		super();
+		try {
+			GrammarDecl decl = GrammarDecl.read(fileName);
+			if (decl != null && decl.getType().equals(GrammarDecl.PARSER)) {
+				return;
+			}
+		} catch(IOException e) {
+			this.errors.add(e.toString());
+			return;
+		}
+
+		ImportResolver resolver = new ImportResolver(searchPaths, null, null, Map.of());
+		Tool tool = new Tool() {
+			@Override public File getImportedGrammarFile(Grammar g, String fileName) {
+				if (fileName.endsWith(".g4")) {
+					String found = resolver.resolve(fileName.substring(0, fileName.length() - ".g4".length()), g.fileName, false);
+					if (found != null) {
+						return new File(found);
+					}
+				}
+				return super.getImportedGrammarFile(g, fileName);
+			}
+		};
+		if (!searchPaths.isEmpty()) {
+			tool.libDirectory = searchPaths.get(0);
+		}
+		tool.removeListeners();
+		tool.addListener(new ANTLRToolListener() {
+			@Override public void info(String msg) {
+			}
+			@Override public void error(ANTLRMessage msg) {
+				TokenShadowing.this.errors.add(tool.errMgr.getMessageTemplate(msg).render());
+			}
+			@Override public void warning(ANTLRMessage msg) {
+			}
+		});
+
+		Grammar g = null;
+		try {
+			g = tool.loadGrammar(fileName);
+		} catch(RuntimeException e) {
+			this.errors.add(e.toString());
+			return;
+		}
+		if (!this.errors.isEmpty()) {
+			return;
+		}
+		if (!(g instanceof LexerGrammar)) {
+			g = g.getImplicitLexer();
+		}
+		if (g == null) {
+			return;
+		}
+
+		/*
+		Semantic predicates cannot be evaluated, so each is taken to be false.
+		A rule gated by one then never shadows a token, at the risk of missing
+		a rule which would.
+		*/
+		ArrayList<String> channelNames = new ArrayList<>(List.of("DEFAULT_TOKEN_CHANNEL", "HIDDEN"));
+		channelNames.addAll(g.channelValueToNameList);
+		this.grammar = g;
+		this.interpreter = new LexerInterpreter(g.fileName, g.getVocabulary(), Arrays.asList(g.getRuleNames())
+				, channelNames, ((LexerGrammar)g).modes.keySet(), g.getATN(), CharStreams.fromString("")) {
+			@Override public boolean sempred(RuleContext localctx, int ruleIndex, int predIndex) {
+				return false;
+			}
+		};
+		ATN atn = this.interpreter.getATN();
+		for (Rule r: g.rules.values()) {
+			if (!r.isFragment()) {
+				this.ruleNamesByType.put(atn.ruleToTokenType[r.index], r.name);
+			}
+		}
+
+		/*
+		Each probe is followed by a character no set in the grammar mentions,
+		so a rule which matches at EOF, and so would win only at the end of 
+		the input, does not appear to shadow the token.
+		*/
+		IntervalSet mentioned = new IntervalSet();
+		for (ATNState state: atn.states) {
+			for (int i = 0; state != null && i < state.getNumberOfTransitions(); i++) {
+				IntervalSet label = state.transition(i).label();
+				if (label != null) {
+					mentioned.addAll(label);
+				}
+			}
+		}
+		this.sentinel = mentioned.complement(1, Lexer.MAX_CHAR_VALUE).getMinElement();
+	}
+
+	public ArrayList<String> getErrors() {
+		return this.errors;
+	}
+
+	/**
+	Whether a lexer grammar was loaded, which is not the case if the file
+	is a parser grammar or could not be loaded.
+	*/
+	public Boolean hasLexer() {
+		return this.grammar != null;
+	}
+
+	/**
+	The text each token not a fragment will be probed with, by rule name in
+	the order the rules are defined, omitting rules which do not match a 
+	single fixed sequence.
+	*/
+	public LinkedHashMap<String, String> probes() {
+		LinkedHashMap<String, String> probes = new LinkedHashMap<>();
+		if (this.grammar == null) {
+			return probes;
+		}
+		for (Rule r: this.grammar.rules.values()) {
+			if (r.isFragment()) {
+				continue;
+			}
+			String text = this.probeText(r.index);
+			if (text != null && !text.isEmpty()) {
+				probes.put(r.name, text);
+			}
+		}
+		return probes;
+	}
+
+	/**
+	Return the name of the rule ANTLR would match instead of the named rule
+	given the indicated text, or null if the named rule would match it or
+	the rule matching it also matches more than the text.  
+
+	If the named rule matches a sequence of character sets, e.g. 
+	<code>[aA] [bB]</code>, null is also returned unless every text it 
+	matches is matched by some other rule, as 'ab' is not by 
+	<code>'A' 'B'</code>, or if it matches more than MAX_PROBES texts.
+	*/
+	public String shadowedBy(String ruleName, String text) {
+		Rule r = this.grammar.getRule(ruleName);
+		String shadowedBy = this.matchedBy(r, text);
+		if (shadowedBy == null) {
+			return null;
+		}
+
+		List<IntervalSet> sets = this.probeSets(r.index);
+		if (sets == null) {
+			return shadowedBy;
+		}
+		long texts = 1;
+		for (IntervalSet set: sets) {
+			texts *= set.size();
+			if (texts > MAX_PROBES) {
+				return null;
+			}
+		}
+		int[] next = new int[sets.size()];
+		ArrayList<List<Integer>> members = new ArrayList<>();
+		for (IntervalSet set: sets) {
+			members.add(set.toList());
+		}
+		for (long i = 0; i < texts; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = 0; j < next.length; j++) {
+				sb.appendCodePoint(members.get(j).get(next[j]));
+			}
+			if (this.matchedBy(r, sb.toString()) == null) {
+				return null;
+			}
+			for (int j = next.length - 1; j >= 0 && ++next[j] == members.get(j).size(); j--) {
+				next[j] = 0;
+			}
+		}
+		return shadowedBy;
+	}
+
+	/**
+	Return the name of the rule ANTLR would match instead of the indicated 
+	rule given the indicated text, as <code>shadowedBy</code> does for that 
+	text alone.
+	*/
+	private String matchedBy(Rule r, String text) {
+		int mode = Arrays.asList(this.interpreter.getModeNames()).indexOf(r.mode);
+		int tokenType = this.interpreter.getATN().ruleToTokenType[r.index];
+
+		/*
+		Lexer commands are executed as the rule matched is accepted, so a mode
+		to pop is pushed first.
+		*/
+		this.interpreter.reset();
+		this.interpreter.pushMode(Math.max(mode, 0));
+		CharStream input = CharStreams.fromString(text + Character.toString(this.sentinel));
+		int predicted = tokenType;
+		try {
+			predicted = this.interpreter.getInterpreter().match(input, Math.max(mode, 0));
+		} catch(LexerNoViableAltException | EmptyStackException e) {
+			return null;
+		}
+		if (predicted == tokenType || input.index() != text.codePointCount(0, text.length())) {
+			return null;
+		}
+		return this.ruleNamesByType.getOrDefault(predicted, this.interpreter.getVocabulary().getDisplayName(predicted));
+	}
+
+	/**
+	Where the named rule is defined.  A rule from an imported grammar is
+	attributed to the grammar importing it.
+	*/
+	public Location getDefinition(String ruleName) {
+		Rule r = this.grammar.getRule(ruleName);
+		org.antlr.runtime.tree.Tree name = r.ast.getChild(0);
+		return new Location(r.g.fileName, name.getLine(), name.getCharPositionInLine() + 1);
+	}
+
+	/**
+	The text of the lowest character of each set a rule matches, or null if
+	it does not match a single fixed sequence.
+	*/
+	private String probeText(int ruleIndex) {
+		List<IntervalSet> sets = this.probeSets(ruleIndex);
+		if (sets == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (IntervalSet set: sets) {
+			sb.appendCodePoint(set.getMinElement());
+		}
+		return sb.toString();
+	}
+
+	/**
+	Follow the ATN from the start of a rule, through any fragments it
+	invokes, collecting each set of characters matched.  Returns null
+	if a state has more than one transition, i.e. there is a choice of 
+	alternatives or a loop, or if a transition matches any character but
+	some, or <code>EOF</code>, or is a predicate.
+	*/
+	private List<IntervalSet> probeSets(int ruleIndex) {
+		ATN atn = this.interpreter.getATN();
+		ATNState s = atn.ruleToStartState[ruleIndex];
+		ArrayDeque<ATNState> follow = new ArrayDeque<>();
+		ArrayList<IntervalSet> sets = new ArrayList<>();
+		for (int steps = 0; steps < 10000; steps++) {
+			if (s instanceof RuleStopState) {
+				if (follow.isEmpty()) {
+					return sets;
+				}
+				s = follow.pop();
+				continue;
+			}
+			if (s.getNumberOfTransitions() != 1) {
+				return null;
+			}
+			Transition t = s.transition(0);
+			if (t instanceof RuleTransition) {
+				follow.push(((RuleTransition)t).followState);
+			} else if (t instanceof PredicateTransition
+					|| t instanceof NotSetTransition
+					|| t instanceof WildcardTransition) {
+				return null;
+			} else if (!t.isEpsilon()) {
+				IntervalSet label = t.label();
+				if (label == null || label.isNil() || label.getMinElement() < 0) {
+					return null;
+				}
+				sets.add(label);
+			}
+			s = t.target;
+		}
+		return null;
+	}
+
+}